@@ -9,6 +9,7 @@ module swdc.application.dependency {
     requires jul.to.slf4j;
     requires java.logging;
     requires swdc.commons;
+    requires static java.compiler;
 
     exports org.swdc.dependency;
     exports org.swdc.dependency.utils;
@@ -2,13 +2,22 @@ package org.swdc.dependency;
 
 import org.swdc.dependency.DependencyContext;
 import org.swdc.dependency.DependencyScope;
+import org.swdc.dependency.registry.ComponentInfo;
 
-import java.util.ArrayList;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * Scope的基本实现。
+ *
+ * 组件列表是不可修改的快照，放入组件的时候通过ConcurrentHashMap的compute原子的替换为新的快照，
+ * 并行创建的组件同时放入也不会丢失，读取的时候不需要加锁，也不会创建新的对象。
+ */
 public abstract class AbstractDependencyScope implements DependencyScope {
 
     protected DependencyContext context;
@@ -17,26 +26,30 @@ public abstract class AbstractDependencyScope implements DependencyScope {
     private ConcurrentHashMap<Class, List<Object>> typedComponents = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Class, List<Object>> multipleComponents = new ConcurrentHashMap<>();
 
+    /**
+     * 以父类注册的组件，按照组件对象真实的类型索引
+     */
+    private ConcurrentHashMap<Class, Object> runtimeTypedComponents = new ConcurrentHashMap<>();
+
 
     @Override
     public <T> T put(String name, Class clazz, Class multiple, T component) {
 
-        component = this.put(name,clazz,component);
+        T target = this.put(name,clazz,component);
 
         if (multiple != null) {
-            List<Object> list = multipleComponents.getOrDefault(multiple,new ArrayList<>());
-            list.add(component);
-            multipleComponents.put(multiple,list);
+            multipleComponents.compute(multiple,(k,list) -> append(list,target));
         }
 
-        return component;
+        return target;
     }
 
     @Override
     public <T> T put(String name, Class clazz, T component) {
-        List<Object> list = typedComponents.getOrDefault(clazz,new ArrayList<>());
-        list.add(component);
-        typedComponents.put(clazz,list);
+        typedComponents.compute(clazz,(k,list) -> append(list,component));
+        if (component != null && component.getClass() != clazz) {
+            runtimeTypedComponents.putIfAbsent(component.getClass(),component);
+        }
 
         if (!name.equals(clazz.getName())) {
             namedComponents.put(name,component);
@@ -44,17 +57,26 @@ public abstract class AbstractDependencyScope implements DependencyScope {
         return component;
     }
 
+    /**
+     * 在列表的末尾加入组件
+     * @param list 原来的列表，可以为空
+     * @param component 组件
+     * @return 新的不可修改的列表
+     */
+    private static List<Object> append(List<Object> list, Object component) {
+        if (list == null) {
+            return Collections.singletonList(component);
+        }
+        Object[] values = list.toArray(new Object[list.size() + 1]);
+        values[values.length - 1] = component;
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
     @Override
     public <T> T getByClass(Class<T> clazz) {
         List<Object> typed = typedComponents.get(clazz);
-        if (typed == null || typed.size() == 0) {
-            if (clazz.getSuperclass() != null && clazz.getSuperclass() != Object.class && !clazz.getSuperclass().isPrimitive()) {
-                Object superTyped = getByClass(clazz.getSuperclass());
-                if (superTyped != null && clazz == superTyped.getClass()) {
-                    return (T) superTyped;
-                }
-            }
-            return null;
+        if (typed == null) {
+            return (T) runtimeTypedComponents.get(clazz);
         }
         if (typed.size() > 1) {
             throw new IllegalStateException("存在多个组件，请使用命名组件的方式处理。\n" +
@@ -85,4 +107,26 @@ public abstract class AbstractDependencyScope implements DependencyScope {
     public void setContext(DependencyContext context) {
         this.context = context;
     }
+
+    /**
+     * 执行组件的销毁方法（PreDestroy），Scope自己管理组件生命周期的时候使用。
+     * @param clazz 组件类型
+     * @param component 组件
+     */
+    protected void destroyComponent(Class clazz, Object component) {
+        if (clazz == null || !(context instanceof DependencyFactory)) {
+            return;
+        }
+        ComponentInfo info = ((DependencyFactory) context).findInfo(clazz);
+        if (info == null || info.getDestroyMethod() == null) {
+            return;
+        }
+        try {
+            info.getDestroyMethod().invoke(component);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException("无法销毁组件：" + clazz.getName(),e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("无法销毁组件：" + clazz.getName(),e);
+        }
+    }
 }
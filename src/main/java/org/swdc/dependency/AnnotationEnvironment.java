@@ -1,22 +1,44 @@
 package org.swdc.dependency;
 
+import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import org.slf4j.bridge.SLF4JBridgeHandler;
 import org.swdc.dependency.annotations.Dependency;
+import org.swdc.dependency.annotations.Lazy;
+import org.swdc.dependency.annotations.Order;
 import org.swdc.dependency.annotations.ScopeImplement;
 import org.swdc.dependency.listeners.AfterCreationListener;
 import org.swdc.dependency.listeners.AfterRegisterListener;
 import org.swdc.dependency.parser.AnnotationDependencyParser;
+import org.swdc.dependency.parser.ComponentIndex;
 import org.swdc.dependency.parser.DependencyParser;
 import org.swdc.dependency.registry.*;
 import org.swdc.dependency.scopes.SingletonDependencyScope;
+import org.swdc.dependency.utils.ClasspathFingerprint;
 import org.swdc.ours.common.annotations.Annotations;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 基于注解的依赖环境实现
@@ -43,9 +65,40 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
 
     private AtomicBoolean closed = new AtomicBoolean(false);
 
+    /**
+     * 组件的依赖图，注册或者替换组件后重新建立
+     */
+    private volatile BuiltGraph dependencyGraph;
+
+    /**
+     * 按照类型缓存组件信息，Scope和Singleton组件的实例，
+     * 重复获取同一个类型的组件只需要读取一次字段。
+     */
+    private volatile ClassValue<ResolvedComponent> resolvedComponents = createResolvedCache();
+
+    /**
+     * 已经被缓存的类型，关闭的时候需要从ClassValue中移除
+     */
+    private Set<Class> resolvedClasses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 接口 - 按照Order排序的全部实现组件，实现全部是共享的组件的时候才会缓存。
+     */
+    private final Map<Class,List<Object>> abstractSnapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 组件或者Scope发生变化的次数，用于丢弃过期的快照
+     */
+    private final AtomicLong snapshotVersion = new AtomicLong();
+
+    /**
+     * 批量注册的时候解析组件的线程池
+     */
+    private volatile Executor registerExecutor = ForkJoinPool.commonPool();
+
     public AnnotationEnvironment() {
         registryContext = new DefaultDependencyRegistryContext();
-        parser = new AnnotationDependencyParser();
+        parser = new AnnotationDependencyParser(loadComponentIndex());
         scopes = new ConcurrentHashMap<>();
         afterCreationListeners = new ArrayList<>();
         factoryMap = new HashMap<>();
@@ -56,6 +109,18 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
         scopes.put(Singleton.class,scope);
     }
 
+    /**
+     * 读取编译期生成的组件索引，没有索引的时候组件全部通过反射解析。
+     * @return 组件索引
+     */
+    private static ComponentIndex loadComponentIndex() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = AnnotationEnvironment.class.getClassLoader();
+        }
+        return ComponentIndex.load(classLoader);
+    }
+
     @Override
     public Collection<DependencyScope> getScopes() {
         return scopes.values();
@@ -66,6 +131,7 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
         checkStatus();
         scopes.put(scope.getScopeType(),scope);
         scope.setContext(this);
+        clearResolvedCache();
     }
 
     @Override
@@ -74,7 +140,52 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
         ComponentInfo info = this.registryContext.findByClass(component);
         if (info == null) {
             parser.parse(component,this.registryContext);
+            // 新的组件可能是已缓存的接口的实现
+            clearResolvedCache();
+        }
+    }
+
+    /**
+     * 设置批量注册组件的时候解析组件的线程池，默认使用ForkJoinPool。
+     * @param registerExecutor 线程池
+     */
+    public void setRegisterExecutor(Executor registerExecutor) {
+        this.registerExecutor = registerExecutor;
+    }
+
+    /**
+     * 批量注册组件，在registerExecutor中并行的解析组件。
+     *
+     * 互相依赖的组件可能在不同的线程中解析，先注册的组件信息会被其他线程直接引用，
+     * 全部解析完成后才会返回，AfterRegisterListener可能在多个线程中被调用。
+     * @param components 组件类型
+     */
+    @Override
+    public void registerComponents(Collection<Class> components) {
+        checkStatus();
+        List<Class> unregistered = components.stream()
+                .distinct()
+                .filter(c -> this.registryContext.findByClass(c) == null)
+                .collect(Collectors.toList());
+        if (unregistered.isEmpty()) {
+            return;
         }
+        if (unregistered.size() == 1) {
+            parser.parse(unregistered.get(0),this.registryContext);
+        } else {
+            CompletableFuture[] parsing = unregistered.stream()
+                    .map(component -> CompletableFuture.runAsync(() -> parser.parse(component,this.registryContext),registerExecutor))
+                    .toArray(CompletableFuture[]::new);
+            try {
+                CompletableFuture.allOf(parsing).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        clearResolvedCache();
     }
 
     @Override
@@ -89,9 +200,43 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
             DependencyScope scope = this.getScope(info.getScope());
             if (info.isMultiple()) {
                 scope.put(info.getName(),component,info.getAbstractClazz(),instance);
+                snapshotVersion.incrementAndGet();
+                abstractSnapshots.remove(info.getAbstractClazz());
             } else {
                 scope.put(info.getName(),component,instance);
             }
+            resolvedComponents.remove(component);
+        }
+    }
+
+    /**
+     * 从快照恢复组件注册空间，恢复成功的组件不再需要解析。
+     * 只有尚未注册任何组件，并且快照的ClassPath指纹和当前一致的时候才会恢复。
+     * @param file 快照文件
+     * @return 恢复的组件数量
+     */
+    public int restoreSnapshot(Path file) {
+        checkStatus();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = AnnotationEnvironment.class.getClassLoader();
+        }
+        List<ComponentInfo> restored = RegistrySnapshot.read(file,ClasspathFingerprint.of(),classLoader,registryContext);
+        if (!restored.isEmpty()) {
+            clearResolvedCache();
+        }
+        return restored.size();
+    }
+
+    /**
+     * 把当前的组件注册空间写入快照
+     * @param file 快照文件
+     */
+    public void saveSnapshot(Path file) {
+        try {
+            RegistrySnapshot.write(file,ClasspathFingerprint.of(),registryContext);
+        } catch (IOException e) {
+            throw new RuntimeException("无法写入组件快照：" + file,e);
         }
     }
 
@@ -109,57 +254,144 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
 
     @Override
     public <T> T getByClass(Class<T> clazz) {
-        checkStatus();
+        return awaitReady(lookupByClass(clazz));
+    }
 
-        ComponentInfo info = registryContext.findByClass(clazz);
-        if (info == null) {
-            parser.parse(clazz,registryContext);
-            info = registryContext.findByClass(clazz);
+    /**
+     * 按照类型获取组件，不等待组件的异步初始化。
+     * @param clazz 组件类型
+     * @return 组件
+     */
+    private <T> T lookupByClass(Class<T> clazz) {
+        checkStatus();
 
-            if(info == null) {
-                throw new RuntimeException("无法创建组件，解析失败：" + clazz.getName());
-            }
+        ResolvedComponent resolved = resolvedComponents.get(clazz);
+        Object target = resolved.getInstance();
+        if (target != null) {
+            return (T)target;
+        }
 
+        ComponentInfo info = resolved.info;
+        DependencyScope scope = resolved.getScope();
+        if (scope == null) {
+            scope = getScope(info.getScope());
         }
+        target = resolve(info,scope);
 
-        DependencyScope scope = getScope(info.getScope());
-        Object target = scope.getByClass(clazz);
+        // 禁止返回Factory组件
+        if (info.isFactoryComponent() || info.isInterceptor()) {
+            return null;
+        }
 
-        if (target != null) {
-            // 组件已存在，直接返回
-            return (T)target;
+        if (scope.getScopeType() == Singleton.class && isCompleted(info,scope,target)) {
+            // 只有Singleton的组件可以一直使用同一个对象
+            resolved.instance = new WeakReference<>(target);
         }
 
-        if(this.getHolder().isCreating(info.getClazz())) {
-            throw new RuntimeException("出现了循环依赖：" + clazz.getName());
-        } else {
-            this.getHolder().begin(info.getClazz());
+        return (T)target;
+    }
+
+    /**
+     * 组件是否已经创建完成，其他线程在循环依赖中得到的早期引用还没有完成注入，
+     * 也可能还没有被代理，不能被缓存。
+     */
+    private boolean isCompleted(ComponentInfo info, DependencyScope scope, Object target) {
+        return target != null && !info.getCreationLock().isLocked() && findCreated(info,scope) == target;
+    }
+
+    /**
+     * 类型的解析结果。
+     *
+     * ClassValue的值会一直被类引用，直到从ClassValue中移除，
+     * Scope和组件都会引用依赖环境，所以这里只保存它们的弱引用，
+     * 它们本身由依赖环境持有。
+     */
+    private static class ResolvedComponent {
+
+        private final ComponentInfo info;
+
+        private final WeakReference<DependencyScope> scope;
+
+        private volatile WeakReference<Object> instance;
+
+        ResolvedComponent(ComponentInfo info, DependencyScope scope) {
+            this.info = info;
+            this.scope = new WeakReference<>(scope);
         }
 
-        target = create(info);
+        DependencyScope getScope() {
+            return scope.get();
+        }
 
-        if (info.isMultiple()) {
-            scope.put(info.getName(),info.getClazz(),info.getAbstractClazz(),target);
-        } else {
-            scope.put(info.getName(),info.getClazz(),target);
+        Object getInstance() {
+            WeakReference<Object> reference = instance;
+            return reference == null ? null : reference.get();
         }
 
-        this.getHolder().complete(info);
+    }
 
-        if (info.getInitMethod() != null) {
-            try {
-                info.getInitMethod().invoke(target);
-            } catch (Exception e) {
-                throw new RuntimeException("无法初始化组件：" + info.getInitMethod(),e);
+    private ClassValue<ResolvedComponent> createResolvedCache() {
+        return new ClassValue<>() {
+            @Override
+            protected ResolvedComponent computeValue(Class<?> clazz) {
+                ComponentInfo info = registryContext.findByClass(clazz);
+                if (info == null) {
+                    parser.parse(clazz,registryContext);
+                    info = registryContext.findByClass(clazz);
+
+                    if(info == null) {
+                        throw new RuntimeException("无法创建组件，解析失败：" + clazz.getName());
+                    }
+
+                }
+                resolvedClasses.add(clazz);
+                return bind(info);
             }
-        }
+        };
+    }
 
-        // 禁止返回Factory组件
-        if (info.isFactoryComponent() || info.isInterceptor()) {
-            return null;
+    /**
+     * 绑定组件信息和它的Scope，接口或者抽象类会使用唯一的实现。
+     * @param info 组件信息
+     * @return 绑定的结果
+     */
+    private ResolvedComponent bind(ComponentInfo info) {
+        DependencyScope scope = getScope(info.getScope());
+        if (!info.isCreatable() && findCreated(info,scope) == null) {
+            // 接口或者抽象类，通过类型层级找到唯一的实现
+            ComponentInfo implementation = registryContext.findImplementation(info.getClazz());
+            if (implementation != null) {
+                info = implementation;
+                scope = getScope(info.getScope());
+            }
         }
+        return new ResolvedComponent(info,scope);
+    }
 
-        return (T)target;
+    @Override
+    public <T> Provider<T> getProvider(ComponentInfo info) {
+        checkStatus();
+        ResolvedComponent resolved = bind(info);
+        ComponentInfo target = resolved.info;
+        DependencyScope scope = getScope(target.getScope());
+        return new ComponentProvider<>(() -> {
+            checkStatus();
+            return awaitReady(resolve(target,scope));
+        }, scope.getScopeType() == Singleton.class);
+    }
+
+    /**
+     * 清空类型的缓存，Scope或者实例发生变化的时候使用。
+     */
+    private void clearResolvedCache() {
+        snapshotVersion.incrementAndGet();
+        abstractSnapshots.clear();
+        ClassValue<ResolvedComponent> cache = this.resolvedComponents;
+        this.resolvedComponents = createResolvedCache();
+        for (Class clazz : resolvedClasses) {
+            cache.remove(clazz);
+        }
+        resolvedClasses.clear();
     }
 
     @Override
@@ -180,32 +412,7 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
             return null;
         }
         DependencyScope scope = getScope(info.getScope());
-        Object target = scope.getByClass(clazz);
-
-        if (target != null) {
-            // 组件已存在，直接返回
-            return (T)target;
-        }
-
-        if(this.getHolder().isCreating(info.getClazz())) {
-            throw new RuntimeException("出现了循环依赖：" + clazz.getName());
-        } else {
-            this.getHolder().begin(info.getClazz());
-        }
-
-        target = create(info);
-        scope.put(info.getName(),clazz,target);
-
-        this.getHolder().complete(info);
-
-        if (info.getInitMethod() != null) {
-            try {
-                info.getInitMethod().invoke(target);
-            } catch (Exception e) {
-                throw new RuntimeException("无法初始化组件：" + info.getInitMethod(),e);
-            }
-        }
-        return (T) target;
+        return (T) resolve(info,scope);
     }
 
     @Override
@@ -238,16 +445,15 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
                     this.getHolder().begin(info.getClazz());
                 }
 
-                factory = create(info);
+                try {
+                    factory = create(info);
+                } catch (RuntimeException e) {
+                    this.getHolder().discard(info);
+                    throw e;
+                }
 
                 this.getHolder().complete(info);
-                if (info.getInitMethod() != null) {
-                    try {
-                        info.getInitMethod().invoke(factory);
-                    } catch (Exception e) {
-                        throw new RuntimeException("无法初始化组件：" + info.getInitMethod(),e);
-                    }
-                }
+                this.invokeInitMethod(info,factory);
             }
         }
         return (T)factory;
@@ -261,13 +467,13 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
             // 具名组件，名称和class的全限定名不一致。
             realComp = getHolder().getByName(info.getName());
             if (realComp == null) {
-                realComp = getByName(info.getName());
+                realComp = lookupByName(info.getName());
             }
         } else {
             // 根据类型处理
             realComp = getHolder().getByClass(info.getClazz());
             if (realComp == null) {
-                realComp = getByClass(info.getClazz());
+                realComp = lookupByClass(info.getClazz());
             }
         }
         return (T)realComp;
@@ -283,6 +489,11 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
         return info;
     }
 
+    @Override
+    public ComponentInfo findInfo(String name) {
+        return this.registryContext.findByNamed(name);
+    }
+
     @Override
     public List<ComponentInfo> findAbstractInfo(Class clazz) {
         List<ComponentInfo> infoList = this.registryContext.findByAbstract(clazz);
@@ -295,6 +506,15 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
 
     @Override
     public <T> T getByName(String name) {
+        return awaitReady(lookupByName(name));
+    }
+
+    /**
+     * 按照名称获取组件，不等待组件的异步初始化。
+     * @param name 组件名
+     * @return 组件
+     */
+    private <T> T lookupByName(String name) {
         checkStatus();
 
         ComponentInfo info = registryContext.findByNamed(name);
@@ -309,84 +529,238 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
         if (scope == null) {
             return null;
         }
-        Object target = scope.getByName(name);
-        if (target == null) {
-
-            if(this.getHolder().isCreating(info.getClazz())) {
-                throw new RuntimeException("出现了循环依赖：" + info.getClazz().getName());
-            } else {
-                this.getHolder().begin(info.getClazz());
-            }
-
-            target = create(info);
+        return (T)resolve(info,scope);
+    }
 
-            if (info.isMultiple()) {
-                scope.put(info.getName(),info.getClazz(),info.getAbstractClazz(),target);
-            } else {
-                scope.put(info.getName(),info.getClazz(),target);
-            }
+    @Override
+    public <T> List<T> getByAbstract(Class<T> parent) {
+        checkStatus();
 
-            this.getHolder().complete(info);
+        List<Object> snapshot = abstractSnapshots.get(parent);
+        if (snapshot != null) {
+            return (List<T>) snapshot;
+        }
+        // 在组件的初始化方法中读取的时候，当前线程仍然持有这个组件的创建锁
+        boolean parallel = getHolder().isEmpty() && !CreationLock.isAnyHeldByCurrentThread();
+        List<Object> result = materialize(parent,parallel);
+        for (Object component : result) {
+            awaitReady(component);
+        }
+        return (List<T>) result;
+    }
 
-            if (info.getInitMethod() != null) {
-                try {
-                    info.getInitMethod().invoke(target);
-                } catch (Exception e) {
-                    throw new RuntimeException("无法初始化组件：" + info.getInitMethod(),e);
-                }
-            }
+    @Override
+    public <T> Stream<T> streamByAbstract(Class<T> parent) {
+        checkStatus();
 
+        List<Object> snapshot = abstractSnapshots.get(parent);
+        if (snapshot != null) {
+            return (Stream<T>) snapshot.stream();
         }
-
-        return (T)target;
+        return findImplements(parent).stream()
+                .map(info -> (T) awaitReady(getInternal(info)));
     }
 
+    /**
+     * List和Map注入使用和getByAbstract相同的快照，
+     * 注入发生在其他组件的创建过程中，这里不会并行的创建组件。
+     */
     @Override
-    public <T> List<T> getByAbstract(Class<T> parent) {
-        checkStatus();
+    protected List<Object> resolveMultiple(Class type) {
+        List<Object> snapshot = abstractSnapshots.get(type);
+        if (snapshot == null) {
+            findAbstractInfo(type);
+            snapshot = materialize(type,false);
+        }
+        for (Object component : snapshot) {
+            trackDependency(component);
+        }
+        return snapshot;
+    }
 
+    /**
+     * 按照Order排序的全部实现，不包括Factory组件。
+     * @param parent 接口或者抽象类
+     * @return 实现的组件信息
+     */
+    private List<ComponentInfo> findImplements(Class parent) {
         List<ComponentInfo> infoList = registryContext.findByAbstract(parent);
-        if (infoList == null || infoList.size() == 0) {
+        if (infoList == null || infoList.isEmpty()) {
             return Collections.emptyList();
         }
+        return infoList.stream()
+                .filter(info -> !info.isFactoryComponent())
+                .sorted(Comparator.comparingInt(AnnotationEnvironment::orderOf))
+                .collect(Collectors.toList());
+    }
 
-        DependencyScope scope = getScope(infoList.get(0).getScope());
-        List result = scope.getByAbstract(parent);
-        if (result != null && result.size() > 0) {
-            return result;
+    private static int orderOf(ComponentInfo info) {
+        Order order = (Order) info.getClazz().getAnnotation(Order.class);
+        return order == null ? 0 : order.value();
+    }
+
+    /**
+     * 获取全部实现的组件，实现全部是共享的组件的时候缓存结果。
+     *
+     * 没有创建的共享组件之间不会互相等待，可以在初始化线程池中并行的创建，
+     * 正在创建其他组件的线程不能这样做，因为它持有的创建锁可能被新的线程需要。
+     *
+     * @param parent 接口或者抽象类
+     * @param parallel 是否并行的创建组件
+     * @return 不可修改的组件列表
+     */
+    private List<Object> materialize(Class parent, boolean parallel) {
+        long version = snapshotVersion.get();
+        List<ComponentInfo> infoList = findImplements(parent);
+        if (infoList.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        result = new ArrayList();
+        Object[] result = new Object[infoList.size()];
+        boolean[] absent = new boolean[result.length];
+        boolean cacheable = true;
+        int pending = 0;
+        for (int idx = 0; idx < result.length; idx ++) {
+            ComponentInfo info = infoList.get(idx);
+            DependencyScope scope = getScope(info.getScope());
+            if (!scope.isShared()) {
+                cacheable = false;
+            } else if (parallel && findCreated(info,scope) == null) {
+                absent[idx] = true;
+                pending ++;
+            }
+        }
 
-        for (ComponentInfo info: infoList) {
-            // 禁止返回Factory组件
-            if (info.isFactoryComponent()) {
+        CompletableFuture[] creating = new CompletableFuture[result.length];
+        if (pending > 1) {
+            for (int idx = 0; idx < result.length; idx ++) {
+                if (absent[idx]) {
+                    ComponentInfo info = infoList.get(idx);
+                    creating[idx] = CompletableFuture.supplyAsync(() -> getInternal(info),getInitExecutor());
+                }
+            }
+        }
+        for (int idx = 0; idx < result.length; idx ++) {
+            if (creating[idx] == null) {
+                result[idx] = getInternal(infoList.get(idx));
                 continue;
             }
+            try {
+                result[idx] = creating[idx].join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        List<Object> snapshot = Collections.unmodifiableList(Arrays.asList(result));
+        if (cacheable) {
+            List<Object> exists = abstractSnapshots.putIfAbsent(parent,snapshot);
+            if (exists != null) {
+                return exists;
+            }
+            if (snapshotVersion.get() != version) {
+                // 读取实现的时候注册了新的组件，快照可能已经过期
+                abstractSnapshots.remove(parent,snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取或者创建组件。
+     *
+     * 已经创建完成的组件直接从Scope中返回，不需要加锁，
+     * 共享的组件在创建的时候持有组件自己的创建锁，同一个组件只会被一个线程创建，
+     * 其他线程等待创建完成后从Scope中获取。
+     *
+     * @param info 组件信息
+     * @param scope 组件的Scope
+     * @return 组件对象
+     */
+    private Object resolve(ComponentInfo info, DependencyScope scope) {
+        Object target = findCreated(info,scope);
+        if (!scope.isShared()) {
+            return target != null ? target : createComponent(info,scope);
+        }
 
-            if(this.getHolder().isCreating(info.getClazz())) {
+        CreationLock lock = info.getCreationLock();
+        if (target != null && (!lock.isLocked() || lock.isHeldByCurrentThread())) {
+            // 组件已存在，直接返回
+            return target;
+        }
+
+        if (!lock.acquire()) {
+            // 其他线程正在创建这个组件，并且在等待本线程正在创建的组件，
+            // 使用对方已经构造完毕的对象处理循环依赖。
+            Object early = lock.getEarlyReference();
+            if (early == null) {
+                // 对方已经完成了创建
+                early = findCreated(info,scope);
+            }
+            if (early == null) {
                 throw new RuntimeException("出现了循环依赖：" + info.getClazz().getName());
-            } else {
-                this.getHolder().begin(info.getClazz());
             }
+            return early;
+        }
+        try {
+            target = findCreated(info,scope);
+            if (target != null) {
+                return target;
+            }
+            return createComponent(info,scope);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            Object target = create(info);
+    private Object findCreated(ComponentInfo info, DependencyScope scope) {
+        if (!info.getName().equals(info.getClazz().getName())) {
+            return scope.getByName(info.getName());
+        }
+        return scope.getByClass(info.getClazz());
+    }
 
-            scope.put(info.getName(),info.getClazz(),info.getAbstractClazz(),target);
+    private Object createComponent(ComponentInfo info, DependencyScope scope) {
+        if(this.getHolder().isCreating(info.getClazz())) {
+            throw new RuntimeException("出现了循环依赖：" + info.getClazz().getName());
+        } else {
+            this.getHolder().begin(info.getClazz());
+        }
 
-            this.getHolder().complete(info);
+        Object target = null;
+        List<CompletableFuture<Void>> dependencies = null;
+        this.beginDependencies();
+        try {
+            target = create(info);
+        } catch (RuntimeException e) {
+            // 清理创建失败的组件，避免影响本线程之后的创建
+            this.getHolder().discard(info);
+            info.getCreationLock().setEarlyReference(null);
+            throw e;
+        } finally {
+            dependencies = this.endDependencies();
+        }
 
-            result.add(target);
-            if (info.getInitMethod() != null) {
-                try {
-                    info.getInitMethod().invoke(target);
-                } catch (Exception e) {
-                    throw new RuntimeException("无法初始化组件：" + info.getInitMethod(),e);
-                }
-            }
+        // 异步初始化的组件在放入Scope之前登记，其他线程获取它的时候会等待初始化完成
+        boolean initialized = this.invokeInitMethodAsync(info,target,dependencies);
+        // 不共享的Scope中同时创建的组件，Scope可能返回先放入的组件
+        Object stored = null;
+        if (info.isMultiple()) {
+            stored = scope.put(info.getName(),info.getClazz(),info.getAbstractClazz(),target);
+        } else {
+            stored = scope.put(info.getName(),info.getClazz(),target);
         }
 
-        return result;
+        this.getHolder().complete(info);
+        info.getCreationLock().setEarlyReference(null);
+
+        if (!initialized) {
+            this.invokeInitMethod(info,target,dependencies);
+        }
+        return stored != null ? stored : target;
     }
 
     @Override
@@ -400,8 +774,9 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
     @Override
     public DependencyScope getScope(Class scopeType) {
         checkStatus();
-        if (scopes.containsKey(scopeType)) {
-            return scopes.get(scopeType);
+        DependencyScope exists = scopes.get(scopeType);
+        if (exists != null) {
+            return exists;
         }
         // 没有Scope，解析Scope注解尝试创建
         ScopeImplement implInfo = (ScopeImplement) scopeType.getAnnotation(ScopeImplement.class);
@@ -414,8 +789,8 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
         try {
             DependencyScope scope = (DependencyScope) implInfo.value().getConstructor().newInstance();
             scope.setContext(this);
-            scopes.put(scopeType,scope);
-            return scope;
+            exists = scopes.putIfAbsent(scopeType,scope);
+            return exists == null ? scope : exists;
         } catch (Exception e) {
             throw new RuntimeException("无法创建Scope，异常如下：",e);
         }
@@ -439,22 +814,332 @@ public class AnnotationEnvironment extends BaseEnvironmentFactory implements Dep
                 .collect(Collectors.toUnmodifiableList());
     }
 
+    /**
+     * 获取当前已注册组件的依赖图。
+     * @return 依赖图
+     */
+    public DependencyGraph getDependencyGraph() {
+        BuiltGraph built = this.dependencyGraph;
+        if (built == null || built.version != registryContext.getVersion()) {
+            // 先读取版本，建立的过程中注册的组件会让依赖图在下一次读取的时候重新建立
+            long version = registryContext.getVersion();
+            built = new BuiltGraph(version,new DependencyGraph(registryContext));
+            this.dependencyGraph = built;
+        }
+        return built.graph;
+    }
+
+    /**
+     * 依赖图和建立它的时候注册表的版本
+     */
+    private static class BuiltGraph {
+
+        private final long version;
+
+        private final DependencyGraph graph;
+
+        BuiltGraph(long version, DependencyGraph graph) {
+            this.version = version;
+            this.graph = graph;
+        }
+
+    }
+
+    /**
+     * 检查依赖图，一次性报告全部无法解决的循环依赖和缺少的组件。
+     *
+     * 只由构造方法和工厂方法组成的循环依赖无法通过早期引用解决，
+     * 依赖的接口或抽象类既没有实现，也没有工厂和注册的实例的时候，组件是缺少的，
+     * 存在多个实现并且没有指定组件名的时候也会报告。
+     */
+    public void validate() {
+        checkStatus();
+        DependencyGraph graph = getDependencyGraph();
+        List<String> problems = new ArrayList<>();
+        for (List<ComponentInfo> cycle : graph.getUnresolvableCycles()) {
+            problems.add("出现了无法解决的循环依赖：" + cycle.stream()
+                    .map(i -> i.getClazz().getName())
+                    .collect(Collectors.joining(" -> ")));
+        }
+        for (ComponentInfo info : graph.getComponents()) {
+            for (ComponentInfo dependency : graph.getDependencies(info)) {
+                try {
+                    if (!isAvailable(dependency)) {
+                        problems.add("缺少组件：" + info.getClazz().getName() +
+                                " 依赖的 " + dependency.getClazz().getName() + " 没有可用的实现。");
+                    }
+                } catch (IllegalStateException e) {
+                    problems.add(info.getClazz().getName() + " 依赖的 " + e.getMessage());
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new RuntimeException("组件的依赖存在问题：\n" + String.join("\n",problems));
+        }
+    }
+
+    private boolean isAvailable(ComponentInfo info) {
+        if (info.isCreatable()) {
+            return true;
+        }
+        // 手动注册的实例
+        DependencyScope scope = scopes.get(info.getScope());
+        if (scope != null && findCreated(info,scope) != null) {
+            return true;
+        }
+        return registryContext.findImplementation(info.getClazz()) != null;
+    }
+
+
+    /**
+     * 提前创建全部的Singleton组件。
+     *
+     * 按照依赖图安排组件的创建，组件依赖的组件全部创建完成后，
+     * 它就会在executor中创建和初始化，不需要等待同一层的其他组件，
+     * 互相没有依赖的组件（例如返回CompletableFuture的工厂方法）会并行创建，
+     * 因此启动时间取决于最慢的依赖链，而不是组件的数量。存在循环依赖的组件最后依次创建。
+     *
+     * @param executor 创建组件的线程池
+     * @return 全部组件创建完成后结束的Future
+     */
+    public CompletableFuture<Void> preInstantiate(Executor executor) {
+        checkStatus();
+        DependencyGraph graph = getDependencyGraph();
+        Map<ComponentInfo,CompletableFuture<Void>> created = new IdentityHashMap<>();
+        for (List<ComponentInfo> level : graph.getLevels()) {
+            for (ComponentInfo info : level) {
+                CompletableFuture<Void> dependencies = CompletableFuture.allOf(graph.getDependencies(info).stream()
+                        .map(created::get)
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture[]::new));
+                if (isEager(info)) {
+                    created.put(info,dependencies.thenRunAsync(() -> this.getInternal(info),executor));
+                } else {
+                    // 不需要提前创建的组件，依赖它的组件仍然需要等待它的依赖
+                    created.put(info,dependencies);
+                }
+            }
+        }
+        CompletableFuture<Void> result = CompletableFuture.allOf(created.values().toArray(CompletableFuture[]::new));
+        // 存在循环依赖的组件，需要按照顺序在同一个线程中创建
+        List<ComponentInfo> cyclic = graph.getCyclic().stream()
+                .filter(this::isEager)
+                .collect(Collectors.toList());
+        if (!cyclic.isEmpty()) {
+            result = result.thenRunAsync(() -> cyclic.forEach(this::getInternal),executor);
+        }
+        return result;
+    }
+
+    private boolean isEager(ComponentInfo info) {
+        if (info.getScope() != Singleton.class || info.isFactoryComponent()) {
+            return false;
+        }
+        Class clazz = info.getClazz();
+        if (Annotations.findAnnotation(clazz,Lazy.class) != null) {
+            // 延迟创建的组件在第一次使用的时候创建
+            return false;
+        }
+        // 抽象的组件只能通过工厂方法创建
+        return info.isCreatable();
+    }
+
+    /**
+     * 单个组件销毁的默认超时时间
+     */
+    private static final Duration DESTROY_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * 关闭依赖环境的默认期限
+     */
+    private static final Duration CLOSE_DEADLINE = Duration.ofSeconds(30);
+
     @Override
     public void close() throws Exception {
-       List<Object> components = this.getAllComponent();
-       for (Object object: components) {
-           ComponentInfo info = registryContext.findByClass(object.getClass());
-           if (info != null && info.getDestroyMethod() != null) {
-               info.getDestroyMethod().invoke(object);
-           }
-       }
-       for (Object factory:factoryMap.values()) {
-           ComponentInfo info = registryContext.findByClass(factory.getClass());
-           if (info != null && info.getDestroyMethod() != null) {
-               info.getDestroyMethod().invoke(factory);
-           }
-       }
-        closed.set(true);
+        // 超时的销毁方法不会自己结束，使用单独的守护线程执行，关闭后停止这些线程
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable,"dependency-destroy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            close(executor,DESTROY_TIMEOUT,CLOSE_DEADLINE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 关闭依赖环境，执行组件的销毁方法（PreDestroy）。
+     *
+     * 组件按照依赖图的反向顺序销毁，依赖它的组件全部销毁之后才会销毁它，
+     * 互相没有依赖的组件在executor中并行销毁。
+     * 销毁方法超时的组件不再等待，继续销毁它依赖的组件，
+     * 超过整体期限后不再等待剩余的组件，环境仍然会被关闭。
+     *
+     * 超时的销毁方法不会被中断，会一直占用executor的线程，
+     * 因此executor应该由调用者创建，并且在关闭之后由调用者停止，不要使用ForkJoinPool的公共线程池。
+     * 开始关闭之后环境就不再提供组件，重复调用会直接返回。
+     *
+     * @param executor 执行销毁方法的线程池
+     * @param componentTimeout 单个组件的超时时间
+     * @param deadline 整体的期限
+     */
+    public void close(Executor executor, Duration componentTimeout, Duration deadline) {
+        if (!closed.compareAndSet(false,true)) {
+            return;
+        }
+        // 销毁之前等待正在进行的异步初始化
+        this.awaitInitializations();
+
+        DependencyGraph graph = getDependencyGraph();
+        Map<ComponentInfo,List<ComponentInfo>> dependents = new IdentityHashMap<>();
+        for (ComponentInfo info : graph.getComponents()) {
+            for (ComponentInfo dependency : graph.getDependencies(info)) {
+                dependents.computeIfAbsent(dependency,k -> new ArrayList<>()).add(info);
+            }
+        }
+
+        Set<Object> visited = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        Map<ComponentInfo,CompletableFuture<Void>> destroying = new IdentityHashMap<>();
+        List<ComponentInfo> order = new ArrayList<>(graph.getOrder());
+        Collections.reverse(order);
+        for (ComponentInfo info : order) {
+            // 依赖它的组件在反向的顺序中排在前面，循环依赖中的组件只等待已经安排的组件
+            CompletableFuture<Void> before = CompletableFuture.allOf(dependents.getOrDefault(info,Collections.emptyList())
+                    .stream()
+                    .map(destroying::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new));
+            Object target = findDestroyable(info);
+            if (target == null || !visited.add(target) || info.getDestroyMethod() == null) {
+                destroying.put(info,before);
+                continue;
+            }
+            destroying.put(info,before.thenCompose(v -> destroy(info,target,executor,componentTimeout,failures)));
+        }
+        CompletableFuture<Void> result = CompletableFuture.allOf(destroying.values().toArray(CompletableFuture[]::new));
+
+        // 共享的组件销毁之后关闭Scope，销毁Scope返回的和不在依赖图中的组件，例如手动注册的实例
+        for (DependencyScope scope : new ArrayList<>(scopes.values())) {
+            result = result.thenCompose(v -> closeScope(scope,executor,componentTimeout,failures))
+                    .thenCompose(remains -> destroyRemains(remains,visited,executor,componentTimeout,failures));
+        }
+        List<Object> factories = new ArrayList<>(factoryMap.values());
+        result = result.thenCompose(v -> destroyRemains(factories,visited,executor,componentTimeout,failures));
+
+        try {
+            result.get(deadline.toMillis(),TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            failures.add(new RuntimeException("关闭依赖环境超时，仍有组件没有销毁完成。",e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.add(e);
+        } catch (ExecutionException e) {
+            failures.add(e.getCause());
+        }
+
+        clearResolvedCache();
+
+        if (!failures.isEmpty()) {
+            RuntimeException exception = new RuntimeException("部分组件没有正常销毁。");
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    /**
+     * 在executor中执行组件的销毁方法，失败和超时都记录下来，不影响其他组件的销毁。
+     */
+    private CompletableFuture<Void> destroy(ComponentInfo info, Object target, Executor executor, Duration timeout, List<Throwable> failures) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                info.getDestroyMethod().invoke(target);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException("无法销毁组件：" + info.getClazz().getName(),e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("无法销毁组件：" + info.getClazz().getName(),e);
+            }
+        },executor).orTimeout(timeout.toMillis(),TimeUnit.MILLISECONDS).handle((v,e) -> {
+            if (e instanceof CompletionException && e.getCause() != null) {
+                e = e.getCause();
+            }
+            if (e instanceof TimeoutException) {
+                failures.add(new RuntimeException("组件销毁超时：" + info.getClazz().getName(),e));
+            } else if (e != null) {
+                failures.add(e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 在executor中关闭Scope，失败和超时都记录下来
+     * @return Scope返回的需要销毁的组件
+     */
+    private CompletableFuture<List<Object>> closeScope(DependencyScope scope, Executor executor, Duration timeout, List<Throwable> failures) {
+        return CompletableFuture.supplyAsync(scope::close,executor)
+                .orTimeout(timeout.toMillis(),TimeUnit.MILLISECONDS)
+                .handle((remains,e) -> {
+                    if (e instanceof CompletionException && e.getCause() != null) {
+                        e = e.getCause();
+                    }
+                    if (e instanceof TimeoutException) {
+                        failures.add(new RuntimeException("Scope关闭超时：" + scope.getScopeType().getName(),e));
+                    } else if (e != null) {
+                        failures.add(e);
+                    }
+                    return remains == null ? Collections.emptyList() : remains;
+                });
+    }
+
+    /**
+     * 依次销毁还没有销毁过的组件
+     */
+    private CompletableFuture<Void> destroyRemains(List<Object> remains, Set<Object> visited, Executor executor, Duration timeout, List<Throwable> failures) {
+        CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+        for (Object object : remains) {
+            if (object == null || !visited.add(object)) {
+                continue;
+            }
+            ComponentInfo info = findInfoOf(object);
+            if (info != null && info.getDestroyMethod() != null) {
+                result = result.thenCompose(v -> destroy(info,object,executor,timeout,failures));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取需要销毁的组件，只有共享的Scope中的组件需要销毁
+     */
+    private Object findDestroyable(ComponentInfo info) {
+        DependencyScope scope = scopes.get(info.getScope());
+        if (scope == null || !scope.isShared()) {
+            return null;
+        }
+        try {
+            return findCreated(info,scope);
+        } catch (IllegalStateException e) {
+            // 同一个类型存在多个组件，按照对象查找
+            return null;
+        }
+    }
+
+    /**
+     * 根据组件对象查找组件信息，AOP和延迟注入的代理类需要查找它的父类。
+     */
+    private ComponentInfo findInfoOf(Object component) {
+        Class clazz = component.getClass();
+        while (clazz != null && clazz != Object.class) {
+            ComponentInfo info = registryContext.findByClass(clazz);
+            if (info != null) {
+                return info;
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return null;
     }
 
     private void checkStatus() {
@@ -1,16 +1,19 @@
 package org.swdc.dependency;
 
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ScanResult;
-import jakarta.inject.Scope;
 import org.swdc.dependency.listeners.AfterCreationListener;
 import org.swdc.dependency.listeners.AfterRegisterListener;
 import org.swdc.dependency.registry.ComponentInfo;
 import org.swdc.dependency.registry.DependencyRegisterContext;
 import org.swdc.dependency.utils.AnnotationUtil;
+import org.swdc.dependency.utils.PackageScanner;
 
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * 基于注解的依赖环境加载器。
@@ -20,6 +23,21 @@ public class AnnotationLoader implements EnvironmentLoader<AnnotationEnvironment
     private AnnotationEnvironment annotationEnvironment;
     private boolean closed;
 
+    /**
+     * 组件注册空间的快照文件
+     */
+    private Path snapshot;
+
+    /**
+     * 从快照恢复的组件数量
+     */
+    private int restored;
+
+    /**
+     * 包扫描结果的缓存目录
+     */
+    private Path scanCache;
+
     public AnnotationLoader() {
         annotationEnvironment = new AnnotationEnvironment();
     }
@@ -60,6 +78,15 @@ public class AnnotationLoader implements EnvironmentLoader<AnnotationEnvironment
         return this;
     }
 
+    @Override
+    public AnnotationLoader withComponents(Collection<Class> components) {
+        if (closed) {
+            return null;
+        }
+        annotationEnvironment.registerComponents(components);
+        return this;
+    }
+
     @Override
     public <C> EnvironmentLoader<AnnotationEnvironment> withInstance(Class<C> clazz, C instance) {
         if (closed) {
@@ -71,17 +98,97 @@ public class AnnotationLoader implements EnvironmentLoader<AnnotationEnvironment
 
     @Override
     public AnnotationLoader withPackage(String packageName) {
-        ClassGraph graph = new ClassGraph();
-        ScanResult result = graph.enableAllInfo()
-                .acceptPackages(packageName)
-                .scan();
-        List<Class<?>> classList = result.getAllStandardClasses().loadClasses();
-        for (Class clazz: classList){
-            this.annotationEnvironment.registerComponent(clazz);
+        if (closed) {
+            return null;
+        }
+        List<Class> scopeAnnotations = annotationEnvironment.getScopes().stream()
+                .map(DependencyScope::getScopeType)
+                .collect(Collectors.toList());
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = AnnotationLoader.class.getClassLoader();
+        }
+        List<Class> classList = new PackageScanner(scanCache)
+                .scan(packageName,scopeAnnotations,classLoader);
+        this.annotationEnvironment.registerComponents(classList);
+        return this;
+    }
+
+    /**
+     * 缓存包扫描的结果，ClassPath没有变化的时候withPackage不再扫描。
+     * 需要在withPackage之前调用。
+     * @param cacheFolder 缓存目录
+     * @return
+     */
+    public AnnotationLoader withScanCache(Path cacheFolder) {
+        if (closed) {
+            return null;
+        }
+        this.scanCache = cacheFolder;
+        return this;
+    }
+
+    @Override
+    public AnnotationLoader withSnapshot(Path snapshot) {
+        if (closed) {
+            return null;
+        }
+        this.snapshot = snapshot;
+        this.restored = annotationEnvironment.restoreSnapshot(snapshot);
+        return this;
+    }
+
+    /**
+     * 快照不存在，已经过期，或者加载过程中注册了快照以外的组件的时候重新写入快照。
+     */
+    private void updateSnapshot() {
+        if (snapshot == null) {
+            return;
+        }
+        int components = annotationEnvironment.getDependencyGraph().getComponents().size();
+        if (restored == 0 || components > restored) {
+            annotationEnvironment.saveSnapshot(snapshot);
+        }
+    }
+
+    /**
+     * 为组件生成工厂类，使用ByteBuddy代替MethodHandle创建组件。
+     * @return
+     */
+    public AnnotationLoader withGeneratedFactories() {
+        if (closed) {
+            return null;
+        }
+        annotationEnvironment.setGenerateFactories(true);
+        return this;
+    }
+
+    /**
+     * 指定执行异步初始化（AsyncInit）的线程池。
+     * @param executor 线程池
+     * @return
+     */
+    public AnnotationLoader withInitExecutor(Executor executor) {
+        if (closed) {
+            return null;
         }
+        annotationEnvironment.setInitExecutor(executor);
         return this;
     }
 
+    /**
+     * 指定批量注册组件（withComponents，withPackage）的时候并行解析组件的线程池，
+     * 需要在注册组件之前调用。
+     * @param executor 线程池
+     * @return
+     */
+    public AnnotationLoader withRegisterExecutor(Executor executor) {
+        if (closed) {
+            return null;
+        }
+        annotationEnvironment.setRegisterExecutor(executor);
+        return this;
+    }
 
     @Override
     public AnnotationLoader afterRegister(AfterRegisterListener listener) {
@@ -106,8 +213,31 @@ public class AnnotationLoader implements EnvironmentLoader<AnnotationEnvironment
         if (closed) {
             return null;
         }
+        annotationEnvironment.validate();
+        updateSnapshot();
         closed = true;
         DependencyContext context = annotationEnvironment;
         return context;
     }
+
+    @Override
+    public CompletableFuture<DependencyContext> loadAsync() {
+        return loadAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 创建依赖环境，并且在指定的线程池中提前创建全部Singleton组件。
+     * @param executor 创建组件的线程池
+     * @return 组件全部创建完成后得到依赖环境的Future
+     */
+    public CompletableFuture<DependencyContext> loadAsync(Executor executor) {
+        if (closed) {
+            return null;
+        }
+        annotationEnvironment.validate();
+        updateSnapshot();
+        closed = true;
+        return annotationEnvironment.preInstantiate(executor)
+                .thenApply(v -> annotationEnvironment);
+    }
 }
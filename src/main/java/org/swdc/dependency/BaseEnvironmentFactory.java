@@ -1,5 +1,6 @@
 package org.swdc.dependency;
 
+import jakarta.inject.Provider;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.implementation.InvocationHandlerAdapter;
 import net.bytebuddy.matcher.ElementMatchers;
@@ -14,6 +15,15 @@ import org.swdc.ours.common.type.ClassTypeAndMethods;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -32,9 +42,59 @@ public abstract class BaseEnvironmentFactory implements DependencyFactory {
     private boolean isNative = false;
 
     /**
-     * 未创建完成的组件缓存
+     * 是否为组件生成工厂类
      */
-    private CacheDependencyHolder holder = new CacheDependencyHolder();
+    private boolean generateFactories = false;
+
+    /**
+     * 工厂类的生成器，开启生成后才会创建
+     */
+    private FactoryGenerator generator;
+
+    /**
+     * 未创建完成的组件缓存，每个线程使用自己的缓存
+     */
+    private final ThreadLocal<CacheDependencyHolder> holder = ThreadLocal.withInitial(CacheDependencyHolder::new);
+
+    /**
+     * 代理类中持有InvocationHandler的字段
+     */
+    private static final String PROXY_HANDLER = "proxyHandler";
+
+    /**
+     * 类型 - 代理类，用于延迟注入和池化的组件
+     */
+    private final Map<Class,Class> proxyClasses = new ConcurrentHashMap<>();
+
+    /**
+     * 无法生成代理的类型
+     */
+    private final Set<Class> unproxyable = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 执行异步初始化的线程池
+     */
+    private Executor initExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * 尚未就绪的组件 - 就绪的Future，组件就绪后移除
+     */
+    private final Map<Object,CompletableFuture<Void>> readiness = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * 尚未就绪的组件数量，为0的时候获取组件不需要检查就绪状态
+     */
+    private final AtomicInteger unready = new AtomicInteger();
+
+    /**
+     * 正在创建的组件所依赖的未就绪组件，嵌套创建的时候每层一个列表
+     */
+    private final ThreadLocal<ArrayDeque<List<CompletableFuture<Void>>>> pendingDependencies = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * 当前线程正在异步初始化的组件
+     */
+    private final ThreadLocal<Object> initializing = new ThreadLocal<>();
 
     /**
      * EventBus，用于传递应用程序的事件。
@@ -46,11 +106,42 @@ public abstract class BaseEnvironmentFactory implements DependencyFactory {
      * @return 组件缓存
      */
     public CacheDependencyHolder getHolder() {
-        return holder;
+        return holder.get();
     }
 
-    @Override
-    public <T> T create(ComponentInfo info) {
+    /**
+     * 是否为组件生成工厂类。
+     *
+     * 开启后，组件在第一次被创建的时候会通过ByteBuddy生成直接调用
+     * 构造方法，工厂方法和Setter的类，适合大量创建的Prototype组件。
+     * 不允许定义新的类的时候会继续使用MethodHandle。
+     *
+     * @param generateFactories 是否生成工厂类
+     */
+    public void setGenerateFactories(boolean generateFactories) {
+        this.generateFactories = generateFactories;
+    }
+
+    public boolean isGenerateFactories() {
+        return generateFactories;
+    }
+
+    /**
+     * 设置执行异步初始化（AsyncInit）的线程池，默认使用ForkJoinPool。
+     * @param initExecutor 线程池
+     */
+    public void setInitExecutor(Executor initExecutor) {
+        this.initExecutor = initExecutor;
+    }
+
+    protected Executor getInitExecutor() {
+        return initExecutor;
+    }
+
+    /**
+     * 获取ByteBuddy，无法使用的时候（例如Native Image）返回空
+     */
+    private ByteBuddy getByteBuddy() {
         if (byteBuddy == null && !isNative) {
             synchronized (BaseEnvironmentFactory.class) {
                 if (byteBuddy == null) {
@@ -62,6 +153,12 @@ public abstract class BaseEnvironmentFactory implements DependencyFactory {
                 }
             }
         }
+        return byteBuddy;
+    }
+
+    @Override
+    public <T> T create(ComponentInfo info) {
+        getByteBuddy();
         T target = null;
         if (info.getFactory() != null) {
             target = createByFactory(info);
@@ -163,92 +260,334 @@ public abstract class BaseEnvironmentFactory implements DependencyFactory {
 
     @Override
     public <T> T initialize(ComponentInfo info, T target) {
-        List<DependencyInfo> setterDependency = info.getDependencyInfos();
-        for (DependencyInfo depInfo: setterDependency) {
-            if (depInfo.getField() != null) {
-                // 字段注入的类型
-                ComponentInfo fieldDepInfo = depInfo.getDependency()[0];
+        InjectionPlan plan = getInjectionPlan(info);
+        for (InjectionPoint point: plan.getInjectionPoints()) {
+            Object realParam = null;
+            switch (point.getType()) {
+                case FIELD:
+                    realParam = resolveDependency(point.getDependencies()[0],point.getLazyTypes()[0]);
+                    break;
+                case LIST:
+                    realParam = resolveMultiple(point.getElementType());
+                    break;
+                case NAMED_MAP:
+                    realParam = resolveMultiple(point.getElementType())
+                            .stream()
+                            .collect(Collectors.toMap(c -> c.getClass().getSimpleName(), c -> c, (a, b) -> {
+                                throw new IllegalStateException("组件名称重复：" + a.getClass().getSimpleName());
+                            }, LinkedHashMap::new));
+                    break;
+                case TYPED_MAP:
+                    realParam = resolveMultiple(point.getElementType())
+                            .stream()
+                            .collect(Collectors.toMap(c -> c.getClass(), c -> c, (a, b) -> {
+                                throw new IllegalStateException("组件类型重复：" + a.getClass().getName());
+                            }, LinkedHashMap::new));
+                    break;
+                case SETTER:
+                    ComponentInfo[] dependency = point.getDependencies();
+                    Object[] params = new Object[dependency.length];
+                    for (int idx = 0; idx < params.length; idx ++) {
+                        ComponentInfo methodParam = dependency[idx];
+                        Object param = resolveDependency(methodParam,point.getLazyTypes()[idx]);
+                        if (param == null) {
+                            throw new RuntimeException("无法初始化实例，因为缺少组件:" + methodParam.getClazz().getName());
+                        }
+                        params[idx] = param;
+                    }
+                    realParam = params;
+                    break;
+            }
 
-                Field field = depInfo.getField();
-                field.setAccessible(true);
+            try {
+                point.inject(target,realParam);
+            } catch (Throwable e) {
+                throw new RuntimeException("初始化实例失败:", e);
+            }
+        }
 
-                Object realParam = null;
+        if (Listenable.class.isAssignableFrom(this.getClass())) {
+            Listenable<AfterCreationListener> listenable = (Listenable) this;
+            for (AfterCreationListener listener: listenable.getAllListeners()) {
+                target = (T)listener.afterCreated(target);
+            }
+        }
 
-                // 泛型，如果field为List或者map，
-                // 这里记录List或者Map的泛型的真实类型
-                if (field.getGenericType() instanceof ParameterizedType) {
+        return target;
+    }
 
-                    Class paramClassType = null;
-                    ParameterizedType paramType = (ParameterizedType) field.getGenericType();
+    /**
+     * 获取组件的注入计划，如果还没有编译，那么在这里编译并缓存。
+     * @param info 组件信息
+     * @return 注入计划
+     */
+    protected InjectionPlan getInjectionPlan(ComponentInfo info) {
+        InjectionPlan plan = info.getInjectionPlan();
+        if (plan == null) {
+            plan = InjectionPlan.compile(info);
+            ByteBuddy byteBuddy = generateFactories ? getByteBuddy() : null;
+            if (byteBuddy != null) {
+                if (generator == null) {
+                    generator = new FactoryGenerator(byteBuddy);
+                }
+                generator.generate(info,plan);
+            }
+            info.setInjectionPlan(plan);
+        }
+        return plan;
+    }
 
-                    if (List.class.isAssignableFrom(field.getType())) {
-                        paramClassType = (Class) paramType.getActualTypeArguments()[0];
-                    } else if (Map.class.isAssignableFrom(field.getType())) {
-                        paramClassType = (Class) paramType.getActualTypeArguments()[1];
-                    }
+    /**
+     * 执行组件的初始化方法（PostConstruct）
+     * @param info 组件信息
+     * @param target 组件对象
+     */
+    protected void invokeInitMethod(ComponentInfo info, Object target) {
+        if (info.getInitMethod() == null) {
+            return;
+        }
+        try {
+            getInjectionPlan(info).invokeInit(target);
+        } catch (Throwable e) {
+            throw new RuntimeException("无法初始化组件：" + info.getInitMethod(),e);
+        }
+    }
 
-                    List<Object> params = new ArrayList<>();
-                    List<ComponentInfo> infoList = findAbstractInfo(paramClassType);
-                    for (ComponentInfo item : infoList) {
-                        params.add(this.getInternal(item));
-                    }
+    /**
+     * 等待组件依赖的未就绪组件，然后执行组件的初始化方法。
+     * @param info 组件信息
+     * @param target 组件对象
+     * @param dependencies 组件依赖的未就绪组件
+     */
+    protected void invokeInitMethod(ComponentInfo info, Object target, List<CompletableFuture<Void>> dependencies) {
+        if (info.getInitMethod() == null) {
+            return;
+        }
+        for (CompletableFuture<Void> dependency : dependencies) {
+            await(dependency,info.getClazz());
+        }
+        invokeInitMethod(info,target);
+    }
 
-                    if (Map.class.isAssignableFrom(field.getType())) {
-                        Class keyType = (Class) paramType.getActualTypeArguments()[0];
-                        if (keyType == String.class) {
-                            realParam = params.stream().collect(Collectors.toMap(c -> c.getClass().getSimpleName(), c -> c));
-                        } else if (keyType == Class.class){
-                            realParam = params.stream().collect(Collectors.toMap(c -> c.getClass(), c -> c));
-                        } else {
-                            throw new RuntimeException("map的批量注入的Key的类型只支持String和Class");
+    /**
+     * 登记组件的就绪状态，需要在组件放入Scope之前调用。
+     *
+     * 异步初始化的组件会在依赖的组件就绪后，在线程池中执行初始化方法，
+     * 没有初始化方法但是依赖了未就绪组件的组件，在依赖全部就绪后才会就绪。
+     *
+     * @param info 组件信息
+     * @param target 组件对象
+     * @param dependencies 组件依赖的未就绪组件
+     * @return 是否已经安排了初始化，返回false的时候需要调用invokeInitMethod
+     */
+    protected boolean invokeInitMethodAsync(ComponentInfo info, Object target, List<CompletableFuture<Void>> dependencies) {
+        InjectionPlan plan = getInjectionPlan(info);
+        CompletableFuture<Void> ready = null;
+        if (plan.isAsyncInit()) {
+            ready = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenRunAsync(() -> {
+                        initializing.set(target);
+                        try {
+                            invokeInitMethod(info,target);
+                        } finally {
+                            initializing.remove();
                         }
-                    } else {
-                        realParam = params;
-                    }
+                    },initExecutor);
+        } else if (!plan.hasInitMethod() && !dependencies.isEmpty()) {
+            ready = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new));
+        }
+        if (ready == null) {
+            return false;
+        }
+        if (ready.isDone() && !ready.isCompletedExceptionally()) {
+            return true;
+        }
+        readiness.put(target,ready);
+        unready.incrementAndGet();
+        CompletableFuture<Void> registered = ready;
+        ready.whenComplete((v,e) -> {
+            // 初始化失败的组件保留下来，获取它的时候抛出异常
+            if (e == null && readiness.remove(target,registered)) {
+                unready.decrementAndGet();
+            }
+        });
+        return true;
+    }
 
-                } else {
-                    realParam = getInternal(fieldDepInfo);
-                }
+    /**
+     * 开始收集正在创建的组件依赖的未就绪组件
+     */
+    protected void beginDependencies() {
+        pendingDependencies.get().push(new ArrayList<>());
+    }
 
-                final Object targetObject = target;
+    /**
+     * 结束收集正在创建的组件依赖的未就绪组件
+     * @return 组件依赖的未就绪组件
+     */
+    protected List<CompletableFuture<Void>> endDependencies() {
+        ArrayDeque<List<CompletableFuture<Void>>> stack = pendingDependencies.get();
+        return stack.isEmpty() ? Collections.emptyList() : stack.pop();
+    }
 
-                try {
-                    field.set(targetObject,realParam);
-                    field.setAccessible(false);
-                    continue;
-                } catch (IllegalAccessException e) {
-                    continue;
-                }
+    /**
+     * 记录注入的组件，它没有就绪的时候加入正在创建的组件的依赖。
+     * @param dependency 注入的组件
+     * @return 注入的组件
+     */
+    protected Object trackDependency(Object dependency) {
+        if (dependency == null || unready.get() == 0 || dependency == initializing.get()) {
+            return dependency;
+        }
+        CompletableFuture<Void> ready = readiness.get(dependency);
+        ArrayDeque<List<CompletableFuture<Void>>> stack = pendingDependencies.get();
+        if (ready != null && !stack.isEmpty()) {
+            stack.peek().add(ready);
+        }
+        return dependency;
+    }
 
-            } else {
-                ComponentInfo[] dependency = depInfo.getDependency();
-                Object[] params = new Object[dependency.length];
-                Method method = depInfo.getSetter();
-                Parameter[] parameters = method.getParameters();
-                for (int idx = 0; idx < parameters.length; idx ++) {
-                    ComponentInfo methodParam = dependency[idx];
-                    Object realParam = getInternal(methodParam);
-                    if (realParam == null) {
-                        throw new RuntimeException("无法初始化实例，因为缺少组件:" + methodParam.getClazz().getName());
-                    }
-                    params[idx] = realParam;
-                }
-                try {
-                    method.invoke(target,params);
-                } catch (Exception e) {
-                    throw new RuntimeException("初始化实例失败:", e);
-                }
+    /**
+     * 等待组件就绪，组件的异步初始化失败的时候抛出异常。
+     * @param component 组件
+     * @param <T> 组件类型
+     * @return 就绪的组件
+     */
+    protected <T> T awaitReady(T component) {
+        if (component == null || unready.get() == 0 || component == initializing.get()) {
+            return component;
+        }
+        CompletableFuture<Void> ready = readiness.get(component);
+        if (ready != null) {
+            await(ready,component.getClass());
+        }
+        return component;
+    }
+
+    /**
+     * 等待全部正在进行的异步初始化结束，不论成功与否。
+     */
+    protected void awaitInitializations() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (readiness) {
+            pending = new ArrayList<>(readiness.values());
+        }
+        for (CompletableFuture<Void> ready : pending) {
+            try {
+                ready.join();
+            } catch (CompletionException | CancellationException e) {
+                // 失败的初始化已经在获取组件的时候报告
             }
         }
+    }
 
-        if (Listenable.class.isAssignableFrom(this.getClass())) {
-            Listenable<AfterCreationListener> listenable = (Listenable) this;
-            for (AfterCreationListener listener: listenable.getAllListeners()) {
-                target = (T)listener.afterCreated(target);
+    private static void await(CompletableFuture<Void> ready, Class component) {
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("组件初始化失败：" + component.getName(),e.getCause());
+        } catch (CancellationException e) {
+            throw new RuntimeException("组件初始化被取消：" + component.getName(),e);
+        }
+    }
+
+    /**
+     * 获取需要注入的组件
+     * @param info 被注入的组件信息
+     * @param lazyType 延迟注入的时候是注入点的类型，否则为空
+     * @return 组件，延迟注入的代理，或者组件的Provider
+     */
+    private Object resolveDependency(ComponentInfo info, Class lazyType) {
+        if (lazyType == null || info == null) {
+            return trackDependency(getInternal(info));
+        }
+        if (lazyType == Provider.class || lazyType == Supplier.class) {
+            return getProvider(info);
+        }
+        LazyReference reference = new LazyReference(() -> awaitReady(getInternal(info)));
+        Object proxied = createProxy(lazyType,reference);
+        if (proxied == null) {
+            // 无法代理的类型直接注入
+            return trackDependency(getInternal(info));
+        }
+        return proxied;
+    }
+
+    /**
+     * 创建把方法调用交给handler处理的代理对象。
+     *
+     * 接口使用JDK代理，类通过ByteBuddy生成子类，子类通过字段持有handler，
+     * 每个类型只需要生成一次，代理对象创建的时候会执行父类的无参数构造方法。
+     * @param type 代理的类型
+     * @param handler 方法调用的处理器
+     * @return 代理对象，无法代理的时候返回空
+     */
+    @Override
+    public Object createProxy(Class type, InvocationHandler handler) {
+        if (type.isInterface()) {
+            return Proxy.newProxyInstance(type.getClassLoader(),new Class[] { type },handler);
+        }
+        Class proxyClass = getProxyClass(type);
+        if (proxyClass == null) {
+            return null;
+        }
+        try {
+            Object proxied = proxyClass.getConstructor().newInstance();
+            proxyClass.getField(PROXY_HANDLER).set(proxied,handler);
+            return proxied;
+        } catch (Exception e) {
+            throw new RuntimeException("无法为组件：" + type + "创建代理！",e);
+        }
+    }
+
+    /**
+     * 获取类型的代理类，代理类通过字段持有自己的InvocationHandler。
+     * @param type 代理的类型
+     * @return 代理类，无法代理的时候返回空
+     */
+    private Class getProxyClass(Class type) {
+        Class proxyClass = proxyClasses.get(type);
+        if (proxyClass != null || unproxyable.contains(type)) {
+            return proxyClass;
+        }
+        ByteBuddy byteBuddy = getByteBuddy();
+        if (byteBuddy == null) {
+            return null;
+        }
+        try {
+            if (Modifier.isFinal(type.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+                throw new IllegalStateException("类型无法被继承");
+            }
+            Constructor constructor = type.getDeclaredConstructor();
+            if (!Modifier.isPublic(constructor.getModifiers()) && !Modifier.isProtected(constructor.getModifiers())) {
+                throw new IllegalStateException("无法访问构造方法");
             }
+            return proxyClasses.computeIfAbsent(type,t -> byteBuddy.subclass(t)
+                    .defineField(PROXY_HANDLER,InvocationHandler.class,Modifier.PUBLIC)
+                    .method(ElementMatchers.not(ElementMatchers.isFinalizer()))
+                    .intercept(InvocationHandlerAdapter.toField(PROXY_HANDLER))
+                    .name(t.getName() + "$Delegated")
+                    .make()
+                    .load(t.getModule().getClassLoader())
+                    .getLoaded());
+        } catch (Exception e) {
+            unproxyable.add(type);
+            return null;
         }
+    }
 
-        return target;
+    /**
+     * 获取某个接口或抽象类的全部实现组件，用于List和Map的批量注入。
+     * @param type 接口或抽象类
+     * @return 组件列表
+     */
+    protected List<Object> resolveMultiple(Class type) {
+        List<Object> params = new ArrayList<>();
+        List<ComponentInfo> infoList = findAbstractInfo(type);
+        for (ComponentInfo item : infoList) {
+            params.add(trackDependency(this.getInternal(item)));
+        }
+        return params;
     }
 
     /**
@@ -259,68 +598,55 @@ public abstract class BaseEnvironmentFactory implements DependencyFactory {
      */
     private <T> T createByConstructor(ComponentInfo info) {
 
-        if (info.getConstructorInfo() != null) {
-
-            ConstructorInfo constructorInfo = info.getConstructorInfo();
-
-            ComponentInfo[] dependencies = constructorInfo.getDependencies();
-            Object[] params = new Object[dependencies.length];
-            Constructor constructor = constructorInfo.getConstructor();
-            Parameter[] parameters = constructor.getParameters();
-
-            for (int idx = 0; idx < params.length; idx ++) {
-                ComponentInfo param = dependencies[idx];
-                Object realComp = getInternal(param);
-                if (realComp == null) {
-                    // cache和scopes里面都没有
-                    throw new RuntimeException("Missing component :" + param.getClazz().getName());
-                }
-                params[idx] = realComp;
-            }
-
-            try {
-                Object result = constructor.newInstance(params);
-                holder.put(info,result);
-                return (T)result;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to create component：",e);
-            }
-
-        } else {
+        InjectionPlan plan = getInjectionPlan(info);
+        ComponentInfo[] dependencies = plan.getCreatorDependencies();
+        Class[] lazyTypes = plan.getCreatorLazyTypes();
+        Object[] params = new Object[dependencies.length];
 
-            try {
-                Constructor constructor = info.getClazz().getConstructor();
-                if (constructor == null) {
-                    throw new RuntimeException("No suitable constructor.");
-                }
-                Object result = constructor.newInstance();
-                holder.put(info,result);
-                return (T)result;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to create instance ：",e);
+        for (int idx = 0; idx < params.length; idx ++) {
+            ComponentInfo param = dependencies[idx];
+            Object realComp = resolveDependency(param,lazyTypes[idx]);
+            if (realComp == null) {
+                // cache和scopes里面都没有
+                throw new RuntimeException("Missing component :" + param.getClazz().getName());
             }
+            params[idx] = realComp;
+        }
 
+        try {
+            Object result = plan.newInstance(null,params);
+            getHolder().put(info,result);
+            info.getCreationLock().setEarlyReference(result);
+            return (T)result;
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to create component：",e);
         }
     }
 
     /**
      * 通过工厂的方式创建对象。
      *
+     * 异步的工厂方法会在当前线程阻塞等待Future完成，组件需要在注入和放入Scope之前创建完毕，
+     * 创建过程不会把Future传递给依赖它的组件，并行只发生在preInstantiate安排的不同组件之间。
+     *
      * @param info 组件信息
      * @param <T> 类型
      * @return 创建好的未初始化的组件。
      */
     private  <T> T createByFactory(ComponentInfo info) {
         FactoryDependencyInfo dep = info.getFactoryInfo();
-        Method method = info.getFactoryMethod();
+        InjectionPlan plan = getInjectionPlan(info);
 
-        ComponentInfo[] dependencies = dep.getDependencies();
+        ComponentInfo[] dependencies = plan.getCreatorDependencies();
+        Class[] lazyTypes = plan.getCreatorLazyTypes();
         Object[] params = new Object[dependencies.length];
         for (int idx = 0; idx < params.length; idx ++) {
             ComponentInfo param = dependencies[idx];
-            Object realComp = getInternal(param);
+            Object realComp = null;
             if (param.isFactoryComponent()) {
                 realComp = getFactory(param.getClazz());
+            } else {
+                realComp = resolveDependency(param,lazyTypes[idx]);
             }
             if (realComp == null) {
                 // cache和scopes里面都没有
@@ -328,20 +654,33 @@ public abstract class BaseEnvironmentFactory implements DependencyFactory {
             }
             params[idx] = realComp;
         }
+        Object factory = null;
+        if (!dep.isStatic()) {
+            factory = getFactory(info.getFactory());
+        }
+        Object result = null;
         try {
-            if (dep.isStatic()) {
-                Object result = method.invoke(null,params);
-                holder.put(info,result);
-                return (T)result;
-            } else {
-                Object factory = getFactory(info.getFactory());
-                Object result = method.invoke(factory,params);
-                holder.put(info,result);
-                return (T)result;
-            }
-        } catch (Exception e) {
+            result = plan.newInstance(factory,params);
+        } catch (Throwable e) {
             throw new RuntimeException("创建失败：",e);
         }
+        if (plan.isAsyncFactory()) {
+            // 异步的工厂方法，等待Future得到组件
+            if (result == null) {
+                throw new RuntimeException("异步的工厂方法没有返回Future：" + info.getFactoryMethod());
+            }
+            try {
+                result = ((CompletionStage) result).toCompletableFuture().join();
+            } catch (CompletionException | CancellationException e) {
+                throw new RuntimeException("创建失败：" + info.getFactoryMethod(),e.getCause() != null ? e.getCause() : e);
+            }
+            if (result == null) {
+                throw new RuntimeException("异步的工厂方法没有提供组件：" + info.getFactoryMethod());
+            }
+        }
+        getHolder().put(info,result);
+        info.getCreationLock().setEarlyReference(result);
+        return (T)result;
     }
 
 
@@ -0,0 +1,19 @@
+package org.swdc.dependency;
+
+/**
+ * 组件的实例化器。
+ *
+ * 开启工厂类生成之后，容器会在组件第一次创建的时候
+ * 为它生成此接口的实现类，实现类直接调用组件的构造方法或者工厂方法。
+ */
+public interface ComponentInstantiator {
+
+    /**
+     * 创建组件
+     * @param factory 工厂对象，构造方法和静态工厂不需要
+     * @param params 构造方法或工厂方法的参数
+     * @return 未初始化的组件
+     */
+    Object newInstance(Object factory, Object[] params);
+
+}
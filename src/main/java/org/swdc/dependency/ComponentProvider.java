@@ -0,0 +1,44 @@
+package org.swdc.dependency;
+
+import jakarta.inject.Provider;
+
+import java.util.function.Supplier;
+
+/**
+ * 注入到Provider和Supplier注入点的组件提供者。
+ *
+ * 创建的时候已经绑定了组件的信息和Scope，获取组件的时候直接进入组件的创建流程，
+ * 不再按照类型查找组件，Singleton组件获取一次之后只需要读取一次字段。
+ *
+ * @param <T> 组件类型
+ */
+class ComponentProvider<T> implements Provider<T>, Supplier<T> {
+
+    private final Supplier<Object> resolver;
+
+    /**
+     * 是否可以一直使用同一个对象
+     */
+    private final boolean shared;
+
+    private volatile T instance;
+
+    ComponentProvider(Supplier<Object> resolver, boolean shared) {
+        this.resolver = resolver;
+        this.shared = shared;
+    }
+
+    @Override
+    public T get() {
+        T target = instance;
+        if (target != null) {
+            return target;
+        }
+        target = (T) resolver.get();
+        if (shared) {
+            instance = target;
+        }
+        return target;
+    }
+
+}
@@ -1,6 +1,7 @@
 package org.swdc.dependency;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 上下文接口。
@@ -41,6 +42,18 @@ public interface DependencyContext {
      */
     <T>  List<T> getByAbstract(Class<T> parent);
 
+    /**
+     * 按顺序逐个获取多实现的组件，只有被读取的组件才会被创建，
+     * 适合只需要找到第一个符合条件的实现的场景。
+     * @param parent 被实现的接口
+     * @param <T> 接口类型
+     * @return 所有实现的组件
+     */
+    default <T> Stream<T> streamByAbstract(Class<T> parent) {
+        List<T> components = getByAbstract(parent);
+        return components == null ? Stream.empty() : components.stream();
+    }
+
     /**
      * 返回所有组件
      * @return 所有这里面的组件实例
@@ -36,6 +36,16 @@ public interface DependencyEnvironment extends DependencyContext, AutoCloseable
      */
     void registerComponent(Class component);
 
+    /**
+     * 批量注册组件，解析组件的信息
+     * @param components
+     */
+    default void registerComponents(Collection<Class> components) {
+        for (Class component : components) {
+            registerComponent(component);
+        }
+    }
+
     /**
      * 实例注册，直接向容器添加组件和组件对应的实例
      * 对象，一般用于添加不方便容器直接创建的对象，例如
@@ -1,8 +1,10 @@
 package org.swdc.dependency;
 
+import jakarta.inject.Provider;
 import org.swdc.dependency.event.Events;
 import org.swdc.dependency.registry.ComponentInfo;
 
+import java.lang.reflect.InvocationHandler;
 import java.util.List;
 
 public interface DependencyFactory extends DependencyContext {
@@ -32,8 +34,32 @@ public interface DependencyFactory extends DependencyContext {
      */
     <T> T getInternal(ComponentInfo info);
 
+    /**
+     * 获取组件的Provider，用于Provider和Supplier注入点，
+     * Provider已经绑定了组件的信息和Scope。
+     * @param info 组件信息
+     * @param <T> 组件类型
+     * @return 组件的Provider
+     */
+    <T> Provider<T> getProvider(ComponentInfo info);
+
+    /**
+     * 创建把方法调用交给handler处理的代理对象，用于延迟注入和池化的组件。
+     * @param type 代理的类型，接口或者可以被继承的类
+     * @param handler 方法调用的处理器
+     * @return 代理对象，无法代理的时候返回空
+     */
+    Object createProxy(Class type, InvocationHandler handler);
+
     ComponentInfo findInfo(Class clazz);
 
+    /**
+     * 根据名称查找组件信息，不会解析新的组件。
+     * @param name 组件名称
+     * @return 组件信息，没有注册的时候返回空
+     */
+    ComponentInfo findInfo(String name);
+
     List<ComponentInfo> findAbstractInfo(Class clazz);
 
     /**
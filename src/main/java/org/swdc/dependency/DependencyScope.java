@@ -1,5 +1,7 @@
 package org.swdc.dependency;
 
+import java.util.List;
+
 /**
  * 组件的Scope的接口。
  *
@@ -41,6 +43,28 @@ public interface DependencyScope extends DependencyContext {
      */
     <T> T put(String name, Class clazz, T component);
 
+    /**
+     * 组件是否在多次获取之间共享。
+     *
+     * 共享的组件在创建的时候需要加锁，保证只被创建一次，
+     * 每次获取都创建新对象的Scope应该返回false。
+     * @return 是否共享
+     */
+    default boolean isShared() {
+        return true;
+    }
+
+    /**
+     * 关闭Scope，依赖环境关闭的时候，在共享的组件按照依赖顺序销毁之后调用。
+     *
+     * 自己管理组件生命周期的Scope（例如组件池）在这里销毁它们，
+     * 并且之后不再提供组件，返回的组件由依赖环境执行销毁方法。
+     * @return 需要依赖环境销毁的组件
+     */
+    default List<Object> close() {
+        return getAllComponent();
+    }
+
     /**
      * 设置上下文
      * @param context
@@ -3,6 +3,10 @@ package org.swdc.dependency;
 import org.swdc.dependency.listeners.AfterCreationListener;
 import org.swdc.dependency.listeners.AfterRegisterListener;
 
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 依赖环境加载器，用于创建一个依赖环境的Builder模式的类型。
  * 提供了各类方便的方法为依赖环境中预先添加各类必要的组件。
@@ -38,6 +42,13 @@ public interface EnvironmentLoader<T extends DependencyContext> {
      */
     EnvironmentLoader<T> withComponent(Class component);
 
+    /**
+     * 批量注册组件
+     * @param components
+     * @return
+     */
+    EnvironmentLoader<T> withComponents(Collection<Class> components);
+
     /**
      * 注册手动初始化后的组件
      * @param clazz 组件类型
@@ -55,6 +66,15 @@ public interface EnvironmentLoader<T extends DependencyContext> {
 
 
 
+    /**
+     * 使用组件注册空间的快照，快照有效的时候直接恢复组件，不再解析注解，
+     * 快照不存在或者已经过期的时候在加载完成后重新写入。
+     * 需要在注册任何组件之前调用。
+     * @param snapshot 快照文件
+     * @return
+     */
+    EnvironmentLoader<T> withSnapshot(Path snapshot);
+
     /**
      * 监听器注册
      * @param listener
@@ -75,4 +95,10 @@ public interface EnvironmentLoader<T extends DependencyContext> {
      */
     DependencyContext load();
 
+    /**
+     * 按照上述配置创建依赖环境，并且并行的提前创建全部Singleton组件
+     * @return 组件全部创建完成后得到依赖环境的Future
+     */
+    CompletableFuture<DependencyContext> loadAsync();
+
 }
@@ -0,0 +1,135 @@
+package org.swdc.dependency;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.swdc.dependency.registry.ComponentInfo;
+import org.swdc.dependency.registry.InjectionPlan;
+import org.swdc.dependency.registry.InjectionPoint;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 组件工厂类的生成器。
+ *
+ * 通过ByteBuddy为组件生成直接调用构造方法，工厂方法和Setter的类，
+ * 生成的类会定义在组件所在的包中，JIT可以像普通的new一样内联它们。
+ *
+ * 私有的成员无法从其他的类直接访问，运行环境不允许定义新的类的时候
+ * （例如模块没有open，或者是在native image中），生成会失败，
+ * 这些情况下注入计划会继续使用MethodHandle。
+ *
+ * 字段注入不在这里生成，字段通常是私有的，继续使用MethodHandle。
+ */
+class FactoryGenerator {
+
+    private static final AtomicInteger sequence = new AtomicInteger(0);
+
+    private ByteBuddy byteBuddy;
+
+    FactoryGenerator(ByteBuddy byteBuddy) {
+        this.byteBuddy = byteBuddy;
+    }
+
+    /**
+     * 为注入计划生成工厂类，生成失败的部分保持原样。
+     * @param info 组件信息
+     * @param plan 注入计划
+     */
+    void generate(ComponentInfo info, InjectionPlan plan) {
+        ComponentInstantiator instantiator = generateInstantiator(info);
+        if (instantiator != null) {
+            plan.setInstantiator(instantiator);
+        }
+        for (InjectionPoint point : plan.getInjectionPoints()) {
+            if (point.getType() != InjectionPoint.Type.SETTER) {
+                continue;
+            }
+            SetterInvoker invoker = generateInvoker(point.getSource().getSetter());
+            if (invoker != null) {
+                point.setInvoker(invoker);
+            }
+        }
+    }
+
+    private ComponentInstantiator generateInstantiator(ComponentInfo info) {
+        Member member = null;
+        MethodCall call = null;
+        if (info.getFactory() != null) {
+            Method method = info.getFactoryMethod();
+            member = method;
+            if (Modifier.isStatic(method.getModifiers())) {
+                call = MethodCall.invoke(method);
+            } else {
+                call = MethodCall.invoke(method).onArgument(0);
+            }
+            if (method.getParameterCount() > 0) {
+                call = call.withArgumentArrayElements(1);
+            }
+        } else {
+            Constructor constructor = null;
+            if (info.getConstructorInfo() != null) {
+                constructor = info.getConstructorInfo().getConstructor();
+            } else {
+                try {
+                    constructor = info.getClazz().getConstructor();
+                } catch (NoSuchMethodException e) {
+                    return null;
+                }
+            }
+            member = constructor;
+            call = MethodCall.construct(constructor);
+            if (constructor.getParameterCount() > 0) {
+                call = call.withArgumentArrayElements(1);
+            }
+        }
+        return define(ComponentInstantiator.class,"newInstance",member,call);
+    }
+
+    private SetterInvoker generateInvoker(Method setter) {
+        MethodCall call = MethodCall.invoke(setter).onArgument(0);
+        if (setter.getParameterCount() > 0) {
+            call = call.withArgumentArrayElements(1);
+        }
+        return define(SetterInvoker.class,"invoke",setter,call);
+    }
+
+    /**
+     * 在成员所在的包中定义实现类并创建它的实例。
+     * @param type 需要实现的接口
+     * @param methodName 接口的方法名
+     * @param member 需要调用的成员
+     * @param call 调用成员的实现
+     * @return 实现类的对象，无法生成的时候返回空
+     */
+    private <T> T define(Class<T> type, String methodName, Member member, MethodCall call) {
+        Class host = member.getDeclaringClass();
+        if (Modifier.isPrivate(member.getModifiers()) || Modifier.isPrivate(host.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(host,MethodHandles.lookup());
+            Implementation implementation = call.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC);
+            Class<? extends T> generated = byteBuddy.subclass(type)
+                    .name(host.getName() + "$$SWFactory" + sequence.incrementAndGet())
+                    .method(ElementMatchers.named(methodName))
+                    .intercept(implementation)
+                    .make()
+                    .load(host.getClassLoader(), ClassLoadingStrategy.UsingLookup.of(lookup))
+                    .getLoaded();
+            return generated.getConstructor().newInstance();
+        } catch (Throwable e) {
+            // 不允许定义新的类，继续使用MethodHandle
+            return null;
+        }
+    }
+
+}
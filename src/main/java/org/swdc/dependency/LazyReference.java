@@ -0,0 +1,53 @@
+package org.swdc.dependency;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * 延迟注入的代理的处理器。
+ *
+ * 第一次调用代理的方法的时候获取真正的组件，
+ * 之后直接调用已经获取的组件，不再经过依赖环境。
+ */
+class LazyReference implements InvocationHandler {
+
+    private Supplier<Object> resolver;
+
+    private volatile Object target;
+
+    LazyReference(Supplier<Object> resolver) {
+        this.resolver = resolver;
+    }
+
+    Object getTarget() {
+        Object target = this.target;
+        if (target == null) {
+            synchronized (this) {
+                target = this.target;
+                if (target == null) {
+                    target = resolver.get();
+                    if (target == null) {
+                        throw new RuntimeException("延迟注入的组件无法创建。");
+                    }
+                    this.target = target;
+                    this.resolver = null;
+                }
+            }
+        }
+        return target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object target = getTarget();
+        try {
+            method.trySetAccessible();
+            return method.invoke(target,args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
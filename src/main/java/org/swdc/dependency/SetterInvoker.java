@@ -0,0 +1,18 @@
+package org.swdc.dependency;
+
+/**
+ * Setter注入的调用器。
+ *
+ * 开启工厂类生成之后，容器会为组件的Setter注入点
+ * 生成此接口的实现类，实现类直接调用Setter方法。
+ */
+public interface SetterInvoker {
+
+    /**
+     * 调用Setter
+     * @param target 组件对象
+     * @param params Setter的参数
+     */
+    void invoke(Object target, Object[] params);
+
+}
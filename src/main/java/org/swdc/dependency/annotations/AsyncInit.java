@@ -0,0 +1,21 @@
+package org.swdc.dependency.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 异步初始化。
+ *
+ * 和PostConstruct一起标记在初始化方法上面，组件创建和注入完成后，
+ * 初始化方法会在依赖环境的线程池中执行，创建组件的线程不会等待它。
+ *
+ * 依赖它的组件可以正常注入，执行自己的初始化方法之前才会等待它初始化完成，
+ * 通过getByClass等方法获取组件的时候也会等待，
+ * 因此多个互相独立并且初始化很慢的组件可以同时初始化。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AsyncInit {
+}
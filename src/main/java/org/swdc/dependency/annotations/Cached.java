@@ -0,0 +1,38 @@
+package org.swdc.dependency.annotations;
+
+import jakarta.inject.Scope;
+import org.swdc.dependency.scopes.CachedDependencyScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存的Scope，适合占用内存较多，但是可以重新创建的组件（例如数据集的索引，编译好的模板）。
+ *
+ * 注入和获取组件得到的是代理对象，组件在第一次被调用的时候创建，
+ * 被移出缓存之后，下一次调用会重新创建。
+ * 缓存中的组件数量超过CachedDependencyScope的容量的时候，最久没有使用的组件会被移出，
+ * 移出的组件会执行PreDestroy方法。
+ */
+@Scope
+@ScopeImplement(value = CachedDependencyScope.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cached {
+
+    /**
+     * 组件创建后的存活时间（毫秒），超过后移出缓存，0表示不过期
+     * @return 存活时间
+     */
+    long timeToLive() default 0;
+
+    /**
+     * 是否通过SoftReference持有组件，内存不足的时候组件可以被GC回收。
+     * 被GC回收的组件已经不存在了，不会执行PreDestroy方法。
+     * @return 是否软引用
+     */
+    boolean soft() default false;
+
+}
@@ -0,0 +1,22 @@
+package org.swdc.dependency.annotations;
+
+import jakarta.inject.Scope;
+import org.swdc.dependency.scopes.ContextDependencyScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 上下文Scope，组件属于调用者打开的ScopeContext，例如一次请求或者一个批处理任务。
+ *
+ * 在ScopeContext的run或call中获取组件，同一个上下文中得到同一个组件，
+ * 关闭ScopeContext的时候销毁上下文中的全部组件。
+ */
+@Scope
+@ScopeImplement(value = ContextDependencyScope.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ContextScoped {
+}
@@ -13,6 +13,10 @@ import java.lang.annotation.Target;
  * 使用此注解请遵循以下约定：
  *
  * 方法有返回引用类型的返回值。
+ * 返回值也可以是CompletableFuture或者CompletionStage，这时组件的类型是它的泛型参数，
+ * Future完成之后组件才会被注入到依赖它的组件里面。
+ * 创建组件的线程会阻塞等待Future完成，只有通过loadAsync预先创建的时候，
+ * 互相没有依赖的Future才会同时进行，直接获取组件会在调用者的线程中等待。
  * 方法的参数是可以被注入的，可以在这个位置引用其他组件。
  *
  */
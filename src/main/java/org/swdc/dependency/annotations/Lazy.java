@@ -0,0 +1,22 @@
+package org.swdc.dependency.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 延迟注入。
+ *
+ * 标记在注入点（字段，Setter，构造方法或工厂方法的参数）上面的时候，
+ * 这里会注入一个代理对象，第一次调用它的方法的时候才会创建真正的组件。
+ * 标记在组件类上面的时候，所有注入这个组件的地方都会使用代理，
+ * 提前创建Singleton组件（loadAsync）的时候也会跳过它。
+ *
+ * 接口类型使用JDK代理，类需要可以被继承并且含有无参数的构造方法，
+ * 代理对象创建的时候会执行这个构造方法，无法代理的时候会直接注入组件。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE,ElementType.FIELD,ElementType.METHOD,ElementType.PARAMETER})
+public @interface Lazy {
+}
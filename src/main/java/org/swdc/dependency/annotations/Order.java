@@ -4,8 +4,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
- * 目前仅用于listener和AOP的切面方法，
+ * 用于listener和AOP的切面方法，
  * 可以将listener进行排序。
+ * 标记在多实现的组件上面的时候，决定getByAbstract和List注入的顺序。
  */
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Order {
@@ -0,0 +1,43 @@
+package org.swdc.dependency.annotations;
+
+import jakarta.inject.Scope;
+import org.swdc.dependency.scopes.PooledDependencyScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 池化的Scope，适合创建成本高并且不是线程安全的组件（例如解析器，编码器）。
+ *
+ * 每个组件类型有一个容量有限的池，池中是已经完成注入和初始化的组件，
+ * 注入和获取组件得到的是代理对象，每一次方法调用从池中借出一个组件，
+ * 调用结束后归还。需要连续调用多个方法的时候，
+ * 可以通过PooledDependencyScope的borrow方法显式的借出和归还。
+ */
+@Scope
+@ScopeImplement(value = PooledDependencyScope.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Pooled {
+
+    /**
+     * 池中组件的最大数量
+     * @return 最大数量
+     */
+    int size() default 8;
+
+    /**
+     * 空闲超过这个时间（毫秒）的组件会被移出池并销毁，0表示不移除
+     * @return 空闲时间
+     */
+    long idleTimeout() default 60000;
+
+    /**
+     * 组件全部被借出的时候，等待归还的最长时间（毫秒），0表示一直等待
+     * @return 等待时间
+     */
+    long maxWait() default 10000;
+
+}
@@ -0,0 +1,23 @@
+package org.swdc.dependency.annotations;
+
+import jakarta.inject.Scope;
+import org.swdc.dependency.scopes.RefreshDependencyScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 可以刷新的Scope，适合需要定期或者在事件发生后重建的组件（例如路由表，根据配置生成的缓存）。
+ *
+ * 注入和获取组件得到的是代理对象，通过RefreshDependencyScope的refresh方法刷新组件的时候，
+ * 新的组件在其他线程中创建，完成后替换旧的组件，之后的调用都交给新的组件处理，
+ * 旧的组件在正在进行的调用结束后销毁。
+ */
+@Scope
+@ScopeImplement(value = RefreshDependencyScope.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RefreshScoped {
+}
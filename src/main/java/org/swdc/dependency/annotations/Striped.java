@@ -0,0 +1,30 @@
+package org.swdc.dependency.annotations;
+
+import jakarta.inject.Scope;
+import org.swdc.dependency.scopes.StripedDependencyScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 分段的Scope，适合被大量线程同时修改的组件（例如计数器，累加器，缓冲区）。
+ *
+ * 组件有多个实例，每个实例是一段，注入和获取组件得到的是代理对象，
+ * 方法调用根据当前线程的哈希值交给其中一段，不同的线程很少会修改同一个实例。
+ * 需要读取结果的时候，通过StripedDependencyScope的aggregate方法合并全部的实例。
+ */
+@Scope
+@ScopeImplement(value = StripedDependencyScope.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Striped {
+
+    /**
+     * 分段的数量，会向上取整到2的幂，0表示使用CPU的数量
+     * @return 分段的数量
+     */
+    int stripes() default 0;
+
+}
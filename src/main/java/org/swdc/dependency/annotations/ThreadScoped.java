@@ -0,0 +1,22 @@
+package org.swdc.dependency.annotations;
+
+import jakarta.inject.Scope;
+import org.swdc.dependency.scopes.ThreadDependencyScope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 线程Scope，每个线程有一个自己的组件。
+ *
+ * 适合不是线程安全，但是经常被使用的组件，获取的时候不需要加锁。
+ * 线程结束之前调用ThreadDependencyScope的exit方法销毁本线程的组件。
+ */
+@Scope
+@ScopeImplement(value = ThreadDependencyScope.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ThreadScoped {
+}
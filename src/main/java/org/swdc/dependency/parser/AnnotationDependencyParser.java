@@ -25,14 +25,47 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class AnnotationDependencyParser implements DependencyParser<Class> {
 
+    /**
+     * 编译期生成的组件索引，可以为空。
+     */
+    private ComponentIndex index;
+
+    public AnnotationDependencyParser() {
+        this(null);
+    }
+
+    /**
+     * 使用组件索引的解析器，被索引的组件直接使用索引的数据创建，
+     * 没有被索引的组件继续通过反射解析。
+     * @param index 组件索引
+     */
+    public AnnotationDependencyParser(ComponentIndex index) {
+        if (index != null && !index.isEmpty()) {
+            this.index = index;
+        }
+    }
+
     @Override
     public void parse(Class source, DependencyRegisterContext context) {
 
+        ComponentIndex.Entry indexed = findIndexed(source);
+        if (indexed != null) {
+            if (indexed.implementBy != null) {
+                for (String impl : indexed.implementBy) {
+                    this.parseInternal(index.loadClass(impl),context);
+                }
+            } else {
+                parseInternal(source,context);
+            }
+            return;
+        }
+
         AnnotationDescriptions annotations = Annotations.getAnnotations(source);
 
         if (Annotations.findAnnotationIn(annotations,Dependency.class) != null) {
@@ -71,6 +104,13 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
         Factory factory = method.getAnnotation(Factory.class);
         ComponentInfo parsed = null;
         if (factory != null) {
+            if (CompletionStage.class.isAssignableFrom(type)) {
+                // 异步的工厂方法，提供的是Future完成后得到的组件
+                type = ReflectionUtil.getFutureType(method.getGenericReturnType());
+                if (type == null) {
+                    throw new RuntimeException("异步的工厂方法需要声明组件的类型：" + method);
+                }
+            }
             // 存在Factor的注解描述，是一般的工厂方法。
             ComponentInfo[] dependInfos = new ComponentInfo[method.getParameterCount()];
             Parameter[] params = method.getParameters();
@@ -87,14 +127,14 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
                     Class clazz = resource.getProperty(Class.class,"type");
                     info = context.findByClass(clazz);
                     if (info == null) {
-                        info = parseInternal(param.getType(),context);
+                        info = parseInternal(dependencyType(param),context);
                         if (info == null) {
                             throw new RuntimeException("无法解析组件，因为缺少依赖：" + param);
                         }
                     }
                 }
                 if (info == null) {
-                    info = parseInternal(param.getType(),context);
+                    info = parseInternal(dependencyType(param),context);
                     if (info == null) {
                         throw new RuntimeException("无法解析组件，因为缺少依赖：" + param);
                     }
@@ -129,7 +169,11 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             parsed.setFactoryMethod(method);
             parsed.setFactoryInfo(new FactoryDependencyInfo(dependInfos,Modifier.isStatic(method.getModifiers())));
 
-            context.register(parsed);
+            ComponentInfo registered = context.register(parsed);
+            if (registered != parsed) {
+                // 其他线程已经注册了这个组件
+                return registered;
+            }
 
         } else {
             // 一般来说是Provider会在这里。
@@ -161,7 +205,10 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             }
 
             // 注册组件信息
-            context.register(parsed);
+            ComponentInfo registered = context.register(parsed);
+            if (registered != parsed) {
+                return registered;
+            }
         }
 
         // 调用Listener
@@ -174,6 +221,11 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
     }
 
     private ComponentInfo parseInternal(Class source, DependencyRegisterContext context) {
+        ComponentIndex.Entry indexed = findIndexed(source);
+        if (indexed != null) {
+            return parseIndexed(source,indexed,context);
+        }
+
         AnnotationDescriptions annotations = Annotations.getAnnotations(source);
         // 查找已经存在的组件
         ComponentInfo info = this.getExists(source,annotations,context);
@@ -198,8 +250,11 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             parsed = new ComponentInfo(source,name, scope);
         }
 
-        // 注册组件信息
-        context.register(parsed);
+        // 注册组件信息，其他线程已经注册了这个组件的时候使用已有的组件
+        ComponentInfo registered = context.register(parsed);
+        if (registered != parsed) {
+            return registered;
+        }
 
         // 解析构造方法
         Constructor[] constructors = source.getConstructors();
@@ -210,7 +265,7 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             Parameter[] params = constructor.getParameters();
             ComponentInfo[] infos = new ComponentInfo[params.length];
             for (int idx = 0; idx < params.length; idx ++) {
-                ComponentInfo paramParsed = parseInternal(params[idx].getType(),context);
+                ComponentInfo paramParsed = parseInternal(dependencyType(params[idx]),context);
                 infos[idx] = paramParsed;
             }
             ConstructorInfo constructorInfo = new ConstructorInfo(constructor,infos);
@@ -281,11 +336,11 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             Parameter[] params = method.getParameters();
             ComponentInfo[] infos = new ComponentInfo[params.length];
             for (int idx = 0; idx < params.length; idx ++) {
-                ComponentInfo paramParsed = parseInternal(params[idx].getType(),context);
+                ComponentInfo paramParsed = parseInternal(dependencyType(params[idx]),context);
                 infos[idx] = paramParsed;
-                DependencyInfo dependencyInfo = new DependencyInfo(method,infos);
-                parsed.getDependencyInfos().add(dependencyInfo);
             }
+            DependencyInfo dependencyInfo = new DependencyInfo(method,infos);
+            parsed.getDependencyInfos().add(dependencyInfo);
         }
 
         // 解析字段注入的信息
@@ -294,7 +349,8 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             if(!AnnotationUtil.hasDependency(field)) {
                 continue;
             }
-            parse(field.getType(),context);
+            Class fieldType = ReflectionUtil.getDependencyType(field.getGenericType(),field.getType());
+            parse(fieldType,context);
             ComponentInfo parsedInfo = null;
 
             AnnotationDescriptions desc = Annotations.getAnnotations(field);
@@ -302,7 +358,7 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
             if (depName != null && !depName.isBlank() && !depName.isEmpty()) {
                 parsedInfo = context.findByNamed(depName);
             } else {
-                parsedInfo = context.findByClass(field.getType());
+                parsedInfo = context.findByClass(fieldType);
             }
 
             if (parsedInfo == null) {
@@ -353,6 +409,155 @@ public class AnnotationDependencyParser implements DependencyParser<Class> {
 
     }
 
+    /**
+     * 根据编译期生成的索引创建组件信息，
+     * 不再需要遍历类的方法和字段以及读取它们的注解。
+     * @param source 组件类
+     * @param indexed 组件的索引数据
+     * @param context 注册上下文
+     * @return 组件信息
+     */
+    private ComponentInfo parseIndexed(Class source, ComponentIndex.Entry indexed, DependencyRegisterContext context) {
+        // 查找已经存在的组件
+        ComponentInfo info = null;
+        if (!indexed.name.equals(source.getName())) {
+            info = context.findByNamed(indexed.name);
+        }
+        if (info == null) {
+            info = context.findByClass(source);
+        }
+        if (info != null) {
+            return info;
+        }
+
+        Class scope = index.loadClass(indexed.scope);
+        ComponentInfo parsed = null;
+        if (indexed.multiple != null) {
+            parsed = new ComponentInfo(index.loadClass(indexed.multiple),source,indexed.name,scope);
+        } else {
+            parsed = new ComponentInfo(source,indexed.name,scope);
+        }
+
+        // 注册组件信息，其他线程已经注册了这个组件的时候使用已有的组件
+        ComponentInfo registered = context.register(parsed);
+        if (registered != parsed) {
+            return registered;
+        }
+
+        try {
+            // 构造方法
+            if (indexed.constructor != null) {
+                Class[] paramTypes = index.loadClasses(indexed.constructor);
+                Constructor constructor = source.getConstructor(paramTypes);
+                Parameter[] params = constructor.getParameters();
+                ComponentInfo[] infos = new ComponentInfo[params.length];
+                for (int idx = 0; idx < params.length; idx ++) {
+                    infos[idx] = parseInternal(dependencyType(params[idx]),context);
+                }
+                parsed.setConstructorInfo(new ConstructorInfo(constructor,infos));
+            }
+
+            // 方法注入
+            for (ComponentIndex.Point point : indexed.setters) {
+                Method method = findIndexedMethod(point);
+                Parameter[] params = method.getParameters();
+                ComponentInfo[] infos = new ComponentInfo[params.length];
+                for (int idx = 0; idx < params.length; idx ++) {
+                    infos[idx] = parseInternal(dependencyType(params[idx]),context);
+                }
+                parsed.getDependencyInfos().add(new DependencyInfo(method,infos));
+            }
+
+            // 初始化和销毁
+            if (indexed.init != null) {
+                parsed.setInitMethod(findIndexedMethod(indexed.init));
+            }
+            if (indexed.destroy != null) {
+                parsed.setDestroyMethod(findIndexedMethod(indexed.destroy));
+            }
+
+            // 切面方法
+            for (ComponentIndex.AspectPoint aspect : indexed.aspects) {
+                InterceptorInfo interceptorInfo = new InterceptorInfo();
+                if (!aspect.nameRegex.isBlank()) {
+                    interceptorInfo.setNamePattern(aspect.nameRegex);
+                }
+                Class annotationType = index.loadClass(aspect.annotation);
+                if (annotationType != Object.class) {
+                    interceptorInfo.setAnnotationType(annotationType);
+                }
+                if (!aspect.returnTypes.isEmpty() && !aspect.returnTypes.get(0).equals(Object.class.getName())) {
+                    interceptorInfo.setReturnType(index.loadClasses(aspect.returnTypes));
+                }
+                interceptorInfo.setAt(AspectAt.valueOf(aspect.at));
+                interceptorInfo.setOrder(aspect.order);
+                interceptorInfo.setMethod(findIndexedMethod(aspect));
+                parsed.setInterceptor(true);
+                parsed.addInterceptorInfo(interceptorInfo);
+            }
+
+            // 字段注入
+            for (ComponentIndex.Point point : indexed.fields) {
+                Field field = index.loadClass(point.declaringClass).getDeclaredField(point.name);
+                Class fieldType = ReflectionUtil.getDependencyType(field.getGenericType(),field.getType());
+                parse(fieldType,context);
+                ComponentInfo parsedInfo = null;
+                if (!point.qualifier.isBlank()) {
+                    parsedInfo = context.findByNamed(point.qualifier);
+                } else {
+                    parsedInfo = context.findByClass(fieldType);
+                }
+                if (parsedInfo == null) {
+                    continue;
+                }
+                parsed.getDependencyInfos().add(new DependencyInfo(field,parsedInfo));
+            }
+        } catch (NoSuchMethodException | NoSuchFieldException e) {
+            throw new RuntimeException("组件索引已经过期，请重新编译：" + source.getName(),e);
+        }
+
+        // AOP
+        for (String advice : indexed.advices) {
+            Class clazz = index.loadClass(advice);
+            ComponentInfo aspectInfo = context.findByClass(clazz);
+            if (aspectInfo == null) {
+                aspectInfo = this.parseInternal(clazz,context);
+            }
+            if (aspectInfo != null) {
+                parsed.addAdviceBy(aspectInfo);
+            }
+        }
+
+        // 完成组件解析
+        parsed.setResolved(true);
+        // 调用Listener
+        if (context instanceof Listenable) {
+            Listenable<AfterRegisterListener> listenable = (Listenable<AfterRegisterListener>)context;
+            parsed = this.invokeListeners(parsed,listenable.getAllListeners());
+        }
+
+        return parsed;
+    }
+
+    /**
+     * 参数依赖的类型，Provider和Supplier参数依赖的是它们提供的组件
+     */
+    private static Class dependencyType(Parameter param) {
+        return ReflectionUtil.getDependencyType(param.getParameterizedType(),param.getType());
+    }
+
+    private Method findIndexedMethod(ComponentIndex.Point point) throws NoSuchMethodException {
+        Class declaring = index.loadClass(point.declaringClass);
+        return declaring.getDeclaredMethod(point.name,index.loadClasses(point.parameters));
+    }
+
+    private ComponentIndex.Entry findIndexed(Class source) {
+        if (index == null) {
+            return null;
+        }
+        return index.find(source);
+    }
+
     private ComponentInfo getExists(Class source,AnnotationDescriptions annotations,DependencyRegisterContext context) {
         // 解析组件名
         AnnotationDescription named = annotations.get(Named.class);
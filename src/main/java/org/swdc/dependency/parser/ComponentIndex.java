@@ -0,0 +1,259 @@
+package org.swdc.dependency.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组件的元数据索引。
+ *
+ * 索引由ComponentIndexProcessor在编译期生成，记录了组件的名称，Scope，
+ * 注入点，初始化和销毁方法以及切面等信息，AnnotationDependencyParser
+ * 可以直接根据索引创建ComponentInfo，不需要在启动的时候遍历类的方法和字段
+ * 再逐个解析它们的注解。
+ *
+ * 索引是文本格式，每一行是使用制表符分隔的一条记录，
+ * 从component开始，到end结束描述一个组件。
+ */
+public class ComponentIndex {
+
+    public static final String LOCATION = "META-INF/swdc/components.index";
+
+    public static final String COMPONENT = "component";
+    public static final String NAME = "name";
+    public static final String SCOPE = "scope";
+    public static final String MULTIPLE = "multiple";
+    public static final String IMPLEMENT_BY = "implementBy";
+    public static final String CONSTRUCTOR = "constructor";
+    public static final String FIELD = "field";
+    public static final String SETTER = "setter";
+    public static final String INIT = "init";
+    public static final String DESTROY = "destroy";
+    public static final String ASPECT = "aspect";
+    public static final String ADVICE = "advice";
+    public static final String END = "end";
+
+    private static final Map<String,Class> primitives = Map.of(
+            "boolean",boolean.class, "byte",byte.class, "char",char.class,
+            "short",short.class, "int",int.class, "long",long.class,
+            "float",float.class, "double",double.class
+    );
+
+    private static final ComponentIndex EMPTY = new ComponentIndex(Collections.emptyMap(),null);
+
+    private Map<String,Entry> entries;
+
+    private ClassLoader classLoader;
+
+    private ComponentIndex(Map<String,Entry> entries, ClassLoader classLoader) {
+        this.entries = entries;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 查找组件的索引
+     * @param clazz 组件类
+     * @return 索引数据，没有被索引的时候返回空
+     */
+    public Entry find(Class clazz) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        return entries.get(clazz.getName());
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * 根据索引中记录的类名加载类
+     * @param name 类名
+     * @return 类
+     */
+    Class loadClass(String name) {
+        Class primitive = primitives.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+        try {
+            return Class.forName(name,false,classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("组件索引已经过期，找不到类：" + name,e);
+        }
+    }
+
+    Class[] loadClasses(List<String> names) {
+        Class[] classes = new Class[names.size()];
+        for (int idx = 0; idx < classes.length; idx ++) {
+            classes[idx] = loadClass(names.get(idx));
+        }
+        return classes;
+    }
+
+    /**
+     * 加载ClassLoader中的全部索引文件
+     * @param classLoader 类加载器
+     * @return 组件索引
+     */
+    public static ComponentIndex load(ClassLoader classLoader) {
+        if (classLoader == null) {
+            return EMPTY;
+        }
+        Map<String,Entry> entries = new HashMap<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    read(reader,entries);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("无法读取组件索引",e);
+        }
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+        return new ComponentIndex(entries,classLoader);
+    }
+
+    private static void read(BufferedReader reader, Map<String,Entry> entries) throws IOException {
+        Entry entry = null;
+        String line = null;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\t",-1);
+            switch (parts[0]) {
+                case COMPONENT:
+                    entry = new Entry(parts[1]);
+                    break;
+                case NAME:
+                    entry.name = parts[1];
+                    break;
+                case SCOPE:
+                    entry.scope = parts[1];
+                    break;
+                case MULTIPLE:
+                    entry.multiple = parts[1];
+                    break;
+                case IMPLEMENT_BY:
+                    entry.implementBy = tail(parts,1);
+                    break;
+                case CONSTRUCTOR:
+                    entry.constructor = tail(parts,1);
+                    break;
+                case FIELD:
+                    entry.fields.add(new Point(parts[1],parts[2],parts[3],Collections.emptyList()));
+                    break;
+                case SETTER:
+                    entry.setters.add(new Point(parts[1],parts[2],null,tail(parts,3)));
+                    break;
+                case INIT:
+                    entry.init = new Point(parts[1],parts[2],null,tail(parts,3));
+                    break;
+                case DESTROY:
+                    entry.destroy = new Point(parts[1],parts[2],null,tail(parts,3));
+                    break;
+                case ASPECT:
+                    AspectPoint aspect = new AspectPoint(parts[1],parts[2],tail(parts,8));
+                    aspect.at = parts[3];
+                    aspect.order = Integer.parseInt(parts[4]);
+                    aspect.nameRegex = parts[5];
+                    aspect.annotation = parts[6];
+                    aspect.returnTypes = parts[7].isEmpty() ? Collections.emptyList() : List.of(parts[7].split(","));
+                    entry.aspects.add(aspect);
+                    break;
+                case ADVICE:
+                    entry.advices.add(parts[1]);
+                    break;
+                case END:
+                    entries.put(entry.className,entry);
+                    entry = null;
+                    break;
+            }
+        }
+    }
+
+    private static List<String> tail(String[] parts, int from) {
+        List<String> result = new ArrayList<>();
+        for (int idx = from; idx < parts.length; idx ++) {
+            if (!parts[idx].isEmpty()) {
+                result.add(parts[idx]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一个组件的索引数据
+     */
+    public static class Entry {
+
+        String className;
+        String name;
+        String scope;
+        String multiple;
+        List<String> implementBy;
+        List<String> constructor;
+        List<Point> fields = new ArrayList<>();
+        List<Point> setters = new ArrayList<>();
+        Point init;
+        Point destroy;
+        List<AspectPoint> aspects = new ArrayList<>();
+        List<String> advices = new ArrayList<>();
+
+        Entry(String className) {
+            this.className = className;
+        }
+
+    }
+
+    /**
+     * 字段或方法，方法需要记录参数类型，
+     * 字段需要记录依赖的组件名。
+     */
+    static class Point {
+
+        String declaringClass;
+        String name;
+        String qualifier;
+        List<String> parameters;
+
+        Point(String declaringClass, String name, String qualifier, List<String> parameters) {
+            this.declaringClass = declaringClass;
+            this.name = name;
+            this.qualifier = qualifier;
+            this.parameters = parameters;
+        }
+
+    }
+
+    /**
+     * 切面方法
+     */
+    static class AspectPoint extends Point {
+
+        String at;
+        int order;
+        String nameRegex;
+        String annotation;
+        List<String> returnTypes;
+
+        AspectPoint(String declaringClass, String name, List<String> parameters) {
+            super(declaringClass,name,null,parameters);
+        }
+
+    }
+
+}
@@ -0,0 +1,479 @@
+package org.swdc.dependency.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 组件索引的注解处理器。
+ *
+ * 在编译期读取组件类的注解，把组件名，Scope，注入点，初始化和销毁方法
+ * 以及切面写入META-INF/swdc/components.index，运行时AnnotationDependencyParser
+ * 直接根据索引创建ComponentInfo。
+ *
+ * 使用@Dependency声明的组件和Provider组件不会被索引，它们依然通过反射解析。
+ * 增量编译的时候会读取已有的索引，本次没有编译并且依然存在的类保留原来的记录。
+ *
+ * 处理器没有通过ServiceLoader或者模块的provides注册，需要在编译的时候使用-processor参数
+ * 或者maven-compiler-plugin的annotationProcessors配置启用。
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private static final String INDEX_LOCATION = "META-INF/swdc/components.index";
+
+    private static final String INJECT = "jakarta.inject.Inject";
+    private static final String NAMED = "jakarta.inject.Named";
+    private static final String SCOPE = "jakarta.inject.Scope";
+    private static final String SINGLETON = "jakarta.inject.Singleton";
+    private static final String PROVIDER = "jakarta.inject.Provider";
+    private static final String RESOURCE = "jakarta.annotation.Resource";
+    private static final String MANAGED_BEAN = "jakarta.annotation.ManagedBean";
+    private static final String POST_CONSTRUCT = "jakarta.annotation.PostConstruct";
+    private static final String PRE_DESTROY = "jakarta.annotation.PreDestroy";
+
+    private static final String ANNOTATIONS = "org.swdc.dependency.annotations.";
+    private static final String AWARE = ANNOTATIONS + "Aware";
+    private static final String DEPENDENCY = ANNOTATIONS + "Dependency";
+    private static final String IMPLEMENT_BY = ANNOTATIONS + "ImplementBy";
+    private static final String MULTIPLE_IMPLEMENT = ANNOTATIONS + "MultipleImplement";
+    private static final String ASPECT = ANNOTATIONS + "Aspect";
+    private static final String ORDER = ANNOTATIONS + "Order";
+    private static final String WITH = ANNOTATIONS + "With";
+    private static final String ALIAS_FOR = ANNOTATIONS + "AliasFor";
+
+    private static final List<String> INJECTABLE = List.of(INJECT,RESOURCE,AWARE,NAMED);
+
+    /**
+     * 类名 - 索引内容，多轮处理的结果在最后一轮统一写出。
+     */
+    private Map<String,String> entries = new LinkedHashMap<>();
+
+    /**
+     * 本次编译处理过的类，已有索引中这些类的记录会被替换或者删除。
+     */
+    private Set<String> processed = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        Set<TypeElement> types = ElementFilter.typesIn(roundEnv.getRootElements());
+        for (TypeElement type : types) {
+            processType(type);
+        }
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (member.getModifiers().contains(Modifier.STATIC)) {
+                processType(member);
+            }
+        }
+        processed.add(binaryName(type));
+        if (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.INTERFACE) {
+            return;
+        }
+        if (find(type,DEPENDENCY) != null || isProvider(type.asType())) {
+            return;
+        }
+        String entry = createEntry(type);
+        if (entry != null) {
+            entries.put(binaryName(type),entry);
+        }
+    }
+
+    /**
+     * 生成一个组件的索引，没有依赖注入相关的注解的类返回空。
+     */
+    private String createEntry(TypeElement type) {
+        boolean component = find(type,SCOPE) != null || find(type,NAMED) != null
+                || find(type,MANAGED_BEAN) != null || find(type,MULTIPLE_IMPLEMENT) != null
+                || find(type,IMPLEMENT_BY) != null || find(type,WITH) != null;
+
+        StringBuilder members = new StringBuilder();
+
+        // 构造方法
+        if (type.getKind() == ElementKind.CLASS) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+                if (!constructor.getModifiers().contains(Modifier.PUBLIC) || !hasDependency(constructor)) {
+                    continue;
+                }
+                line(members,"constructor",parameters(constructor));
+                break;
+            }
+        }
+
+        // 方法，和ClassTypeAndMethods.findAllMethods的顺序一致，从子类到父类
+        List<String> advices = new ArrayList<>();
+        for (TypeElement current : hierarchy(type)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                String declaring = binaryName(current);
+                if (hasDependency(method)) {
+                    line(members,"setter",declaring,method.getSimpleName().toString(),parameters(method));
+                    continue;
+                }
+                if (find(method,POST_CONSTRUCT) != null) {
+                    line(members,"init",declaring,method.getSimpleName().toString(),parameters(method));
+                } else if (find(method,PRE_DESTROY) != null) {
+                    line(members,"destroy",declaring,method.getSimpleName().toString(),parameters(method));
+                } else if (find(method,ASPECT) != null) {
+                    Deque<AnnotationMirror> aspect = find(method,ASPECT);
+                    Deque<AnnotationMirror> order = find(method,ORDER);
+                    String orderValue = order == null ? "0" : String.valueOf(value(order,"value"));
+                    String nameRegex = String.valueOf(value(aspect,"byNameRegex"));
+                    String annotation = typeName((TypeMirror) value(aspect,"byAnnotation"));
+                    String returnTypes = ((List<?>) value(aspect,"byReturnType")).stream()
+                            .map(v -> typeName((TypeMirror) ((AnnotationValue) v).getValue()))
+                            .collect(Collectors.joining(","));
+                    String at = ((VariableElement) value(aspect,"at")).getSimpleName().toString();
+                    line(members,"aspect",declaring,method.getSimpleName().toString(),
+                            at,orderValue,nameRegex,annotation,returnTypes,parameters(method));
+                }
+                Deque<AnnotationMirror> with = find(method,WITH);
+                if (with != null) {
+                    advices.addAll(classes(value(with,"aspectBy")));
+                }
+            }
+        }
+
+        // 字段
+        for (TypeElement current : hierarchy(type)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!hasDependency(field)) {
+                    continue;
+                }
+                String qualifier = name(field);
+                line(members,"field",binaryName(current),field.getSimpleName().toString(),
+                        qualifier == null ? "" : qualifier);
+            }
+        }
+
+        if (!component && members.length() == 0) {
+            return null;
+        }
+
+        // AOP
+        Deque<AnnotationMirror> with = find(type,WITH);
+        Deque<AnnotationMirror> multiple = find(type,MULTIPLE_IMPLEMENT);
+        if (with == null && multiple != null) {
+            TypeMirror abstractType = (TypeMirror) value(multiple,"value");
+            with = find(processingEnv.getTypeUtils().asElement(abstractType),WITH);
+        }
+        if (with != null) {
+            advices.addAll(classes(value(with,"aspectBy")));
+        }
+
+        StringBuilder entry = new StringBuilder();
+        line(entry,"component",binaryName(type));
+        String name = name(type);
+        line(entry,"name",name == null ? binaryName(type) : name);
+        Deque<AnnotationMirror> scope = find(type,SCOPE);
+        if (scope == null) {
+            line(entry,"scope",SINGLETON);
+        } else {
+            // 标注了Scope的注解就是组件的Scope
+            List<AnnotationMirror> path = new ArrayList<>(scope);
+            Element scopeType = path.get(Math.max(0,path.size() - 2)).getAnnotationType().asElement();
+            line(entry,"scope",binaryName((TypeElement) scopeType));
+        }
+        if (multiple != null) {
+            line(entry,"multiple",typeName((TypeMirror) value(multiple,"value")));
+        }
+        Deque<AnnotationMirror> implementBy = find(type,IMPLEMENT_BY);
+        if (implementBy != null) {
+            line(entry,"implementBy",classes(value(implementBy,"value")));
+        }
+        entry.append(members);
+        for (String advice : advices) {
+            line(entry,"advice",advice);
+        }
+        line(entry,"end");
+        return entry.toString();
+    }
+
+    private void writeIndex() {
+        Map<String,String> merged = readIndex();
+        merged.putAll(entries);
+        if (merged.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT,"",INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String entry : merged.values()) {
+                    writer.write(entry);
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "无法写入组件索引：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取输出目录中已有的索引，用于增量编译。
+     * 本次编译处理过的类和已经不存在的类不会保留。
+     * @return 类名 - 索引内容
+     */
+    private Map<String,String> readIndex() {
+        Map<String,String> exists = new LinkedHashMap<>();
+        String text = null;
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT,"",INDEX_LOCATION);
+            text = file.getCharContent(true).toString();
+        } catch (IOException | IllegalArgumentException e) {
+            // 没有已有的索引，完整编译
+            return exists;
+        }
+        String className = null;
+        StringBuilder entry = new StringBuilder();
+        for (String line : text.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.split("\t",-1);
+            if (parts[0].equals("component")) {
+                className = parts[1];
+                entry.setLength(0);
+            }
+            entry.append(line).append('\n');
+            if (parts[0].equals("end") && className != null) {
+                if (!processed.contains(className) && exists(className)) {
+                    exists.put(className,entry.toString());
+                }
+                className = null;
+            }
+        }
+        return exists;
+    }
+
+    private boolean exists(String className) {
+        return processingEnv.getElementUtils().getTypeElement(className.replace('$','.')) != null;
+    }
+
+    private List<TypeElement> hierarchy(TypeElement type) {
+        List<TypeElement> result = new ArrayList<>();
+        TypeElement current = type;
+        while (current != null && !current.getQualifiedName().contentEquals(Object.class.getName())) {
+            result.add(current);
+            TypeMirror superClass = current.getSuperclass();
+            if (superClass.getKind() != TypeKind.DECLARED) {
+                break;
+            }
+            current = (TypeElement) ((DeclaredType) superClass).asElement();
+        }
+        return result;
+    }
+
+    private boolean hasDependency(Element element) {
+        for (String annotation : INJECTABLE) {
+            if (find(element,annotation) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isProvider(TypeMirror type) {
+        TypeElement provider = processingEnv.getElementUtils().getTypeElement(PROVIDER);
+        if (provider == null) {
+            return false;
+        }
+        return processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type),
+                processingEnv.getTypeUtils().erasure(provider.asType()));
+    }
+
+    /**
+     * 和AnnotationDependencyParser的parseName一致，
+     * 依次读取Named，Resource和ManagedBean。
+     */
+    private String name(Element element) {
+        Deque<AnnotationMirror> named = find(element,NAMED);
+        if (named != null) {
+            return String.valueOf(value(named,"value"));
+        }
+        named = find(element,RESOURCE);
+        if (named != null) {
+            return String.valueOf(value(named,"name"));
+        }
+        named = find(element,MANAGED_BEAN);
+        if (named != null) {
+            return String.valueOf(value(named,"value"));
+        }
+        return null;
+    }
+
+    /**
+     * 查找注解，包括注解上面的注解。
+     * @param element 被注解的元素
+     * @param annotation 注解的类名
+     * @return 从元素上直接使用的注解到目标注解的路径，找不到的时候返回空
+     */
+    private Deque<AnnotationMirror> find(Element element, String annotation) {
+        Deque<Deque<AnnotationMirror>> queue = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            Deque<AnnotationMirror> path = new ArrayDeque<>();
+            path.add(mirror);
+            queue.add(path);
+        }
+        while (!queue.isEmpty()) {
+            Deque<AnnotationMirror> path = queue.poll();
+            AnnotationMirror current = path.peekLast();
+            TypeElement type = (TypeElement) current.getAnnotationType().asElement();
+            String typeName = type.getQualifiedName().toString();
+            if (typeName.equals(annotation)) {
+                return path;
+            }
+            if (typeName.startsWith("java.lang.annotation.") || !visited.add(typeName)) {
+                continue;
+            }
+            for (AnnotationMirror meta : type.getAnnotationMirrors()) {
+                Deque<AnnotationMirror> next = new ArrayDeque<>(path);
+                next.add(meta);
+                queue.add(next);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取注解的属性，使用AliasFor声明的别名优先。
+     * @param path find方法找到的注解路径
+     * @param property 属性名
+     * @return 属性值
+     */
+    private Object value(Deque<AnnotationMirror> path, String property) {
+        AnnotationMirror target = path.peekLast();
+        String targetName = ((TypeElement) target.getAnnotationType().asElement()).getQualifiedName().toString();
+        for (AnnotationMirror mirror : path) {
+            if (mirror == target) {
+                break;
+            }
+            Map<? extends ExecutableElement,? extends AnnotationValue> values = processingEnv
+                    .getElementUtils().getElementValuesWithDefaults(mirror);
+            for (Map.Entry<? extends ExecutableElement,? extends AnnotationValue> item : values.entrySet()) {
+                Deque<AnnotationMirror> alias = find(item.getKey(),ALIAS_FOR);
+                if (alias == null) {
+                    continue;
+                }
+                String aliasFor = typeName((TypeMirror) value(alias,"annotation"));
+                if (aliasFor.equals(targetName) && property.equals(value(alias,"value"))) {
+                    return item.getValue().getValue();
+                }
+            }
+        }
+        Map<? extends ExecutableElement,? extends AnnotationValue> values = processingEnv
+                .getElementUtils().getElementValuesWithDefaults(target);
+        for (Map.Entry<? extends ExecutableElement,? extends AnnotationValue> item : values.entrySet()) {
+            if (item.getKey().getSimpleName().contentEquals(property)) {
+                return item.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private List<String> classes(Object value) {
+        List<String> result = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            result.add(typeName((TypeMirror) ((AnnotationValue) item).getValue()));
+        }
+        return result;
+    }
+
+    private String parameters(ExecutableElement executable) {
+        return executable.getParameters().stream()
+                .map(p -> typeName(p.asType()))
+                .collect(Collectors.joining("\t"));
+    }
+
+    /**
+     * 类型在运行时的名称，可以直接用于Class.forName。
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased.getKind().isPrimitive()) {
+            return erased.getKind().name().toLowerCase();
+        }
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return "[" + descriptor(((ArrayType) erased).getComponentType());
+        }
+        return binaryName((TypeElement) processingEnv.getTypeUtils().asElement(erased));
+    }
+
+    private String descriptor(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case CHAR: return "C";
+            case SHORT: return "S";
+            case INT: return "I";
+            case LONG: return "J";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case ARRAY: return "[" + descriptor(((ArrayType) type).getComponentType());
+            default: return "L" + typeName(type) + ";";
+        }
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private static void line(StringBuilder builder, String key, Object... values) {
+        builder.append(key);
+        for (Object value : values) {
+            if (value instanceof List) {
+                for (Object item : (List<?>) value) {
+                    builder.append('\t').append(item);
+                }
+            } else {
+                builder.append('\t').append(value);
+            }
+        }
+        builder.append('\n');
+    }
+
+}
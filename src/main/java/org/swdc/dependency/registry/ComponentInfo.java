@@ -3,6 +3,7 @@ package org.swdc.dependency.registry;
 import jakarta.inject.Provider;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -100,6 +101,16 @@ public class ComponentInfo {
      */
     private List<ComponentInfo> adviceBy = new ArrayList<>();
 
+    /**
+     * 注入计划，组件首次创建的时候编译生成
+     */
+    private volatile InjectionPlan injectionPlan;
+
+    /**
+     * 创建锁，保证共享的组件只被创建一次
+     */
+    private final CreationLock creationLock = new CreationLock();
+
     public ComponentInfo(Class clazz, String name, Class scope) {
         this.clazz = clazz;
         this.scope = scope;
@@ -230,6 +241,18 @@ public class ComponentInfo {
         return Provider.class.isAssignableFrom(clazz);
     }
 
+    /**
+     * 组件是否可以被创建，接口，抽象类和基本类型只能使用它们的实现或者手动注册的实例，
+     * 通过工厂方法提供的组件总是可以创建。
+     * @return 是否可以创建
+     */
+    public boolean isCreatable() {
+        if (factory != null || factoryMethod != null) {
+            return true;
+        }
+        return !clazz.isPrimitive() && !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers());
+    }
+
     public boolean isInterceptor() {
         return interceptor;
     }
@@ -246,4 +269,16 @@ public class ComponentInfo {
         return adviceBy;
     }
 
+    public InjectionPlan getInjectionPlan() {
+        return injectionPlan;
+    }
+
+    public void setInjectionPlan(InjectionPlan injectionPlan) {
+        this.injectionPlan = injectionPlan;
+    }
+
+    public CreationLock getCreationLock() {
+        return creationLock;
+    }
+
 }
@@ -0,0 +1,125 @@
+package org.swdc.dependency.registry;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 组件的创建锁。
+ *
+ * 每一个组件都有自己的锁，共享的组件（例如Singleton）只会被
+ * 第一个获得锁的线程创建，其他线程等待创建完成后直接使用。
+ *
+ * 两个线程分别创建存在循环依赖的两个组件的时候会互相等待，
+ * 这里会检查线程之间的等待关系，出现死锁时至少有一方改为使用
+ * 对方线程已经构造完毕的早期引用，和单线程下的循环依赖处理保持一致。
+ */
+public class CreationLock extends ReentrantLock {
+
+    /**
+     * 正在等待创建锁的线程
+     */
+    private static final Map<Thread,CreationLock> waiting = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程持有的创建锁的数量
+     */
+    private static final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * 检查死锁的间隔
+     */
+    private static final long CHECK_INTERVAL = 10;
+
+    /**
+     * 已经构造但是尚未完成注入的组件
+     */
+    private volatile Object earlyReference;
+
+    /**
+     * 获取创建锁。
+     * @return 是否获得锁，出现跨线程的循环等待并且本组件已经构造完毕的时候返回false，
+     * 此时应该使用本组件的早期引用。
+     */
+    public boolean acquire() {
+        if (tryLock()) {
+            held.get()[0] ++;
+            return true;
+        }
+        Thread current = Thread.currentThread();
+        waiting.put(current,this);
+        try {
+            while (!tryLock(CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                CreationLock blocking = findDeadlock(current);
+                if (blocking == null) {
+                    continue;
+                }
+                if (earlyReference != null) {
+                    return false;
+                }
+                if (blocking.getEarlyReference() != null) {
+                    // 另一个线程可以使用本线程的早期引用完成创建，继续等待。
+                    continue;
+                }
+                throw new RuntimeException("出现了循环依赖，多个线程正在互相等待对方的组件完成构造。");
+            }
+            held.get()[0] ++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待组件创建的时候被中断。",e);
+        } finally {
+            waiting.remove(current);
+        }
+    }
+
+    @Override
+    public void unlock() {
+        super.unlock();
+        held.get()[0] --;
+    }
+
+    /**
+     * 当前线程是否持有任何一个创建锁，
+     * 持有创建锁的线程不能等待其他线程创建组件，其他线程可能需要这个锁。
+     * @return 是否持有创建锁
+     */
+    public static boolean isAnyHeldByCurrentThread() {
+        return held.get()[0] > 0;
+    }
+
+    /**
+     * 沿着 持有锁的线程 - 该线程正在等待的锁 检查是否回到当前线程。
+     * @return 循环等待中被当前线程持有的锁，没有出现循环等待的时候返回空
+     */
+    private CreationLock findDeadlock(Thread current) {
+        Set<Thread> visited = new HashSet<>();
+        CreationLock lock = this;
+        while (lock != null) {
+            Thread owner = lock.getOwner();
+            if (owner == null) {
+                return null;
+            }
+            if (owner == current) {
+                return lock;
+            }
+            if (!visited.add(owner)) {
+                return null;
+            }
+            lock = waiting.get(owner);
+        }
+        return null;
+    }
+
+    public Object getEarlyReference() {
+        return earlyReference;
+    }
+
+    public void setEarlyReference(Object earlyReference) {
+        this.earlyReference = earlyReference;
+    }
+
+}
@@ -1,8 +1,14 @@
 package org.swdc.dependency.registry;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultDependencyRegister implements DependencyRegister {
 
@@ -30,26 +36,124 @@ public class DefaultDependencyRegister implements DependencyRegister {
      */
     protected ConcurrentHashMap<Class,List<ComponentInfo>> scopedInfo = new ConcurrentHashMap<>();
 
+    /**
+     * 类型层级注册表。
+     * 组件的所有父类和接口（不包括Object）都指向这个组件，
+     * 通过父类或接口查找实现的时候不需要遍历类型。
+     */
+    protected ConcurrentHashMap<Class,List<ComponentInfo>> hierarchyInfo = new ConcurrentHashMap<>();
+
+    /**
+     * 注册和替换组件的次数，用于判断根据注册表建立的数据是否已经过期
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 注册组件，可以在多个线程中同时调用。
+     * 同一个类型只会有一个组件占用总注册表，工厂声明的组件会替换直接通过类型解析的组件，
+     * 名称和多实现都相同的组件不会重复注册，返回已经注册的组件。
+     * 同一个类型的其他组件（例如多个工厂方法提供的同类型的具名组件）依然会被注册。
+     * @param info 组件描述符
+     * @return 注册空间中的组件描述符
+     */
     @Override
     public ComponentInfo register(ComponentInfo info) {
         if (info.isRegistered()) {
             return info;
         }
-        defaultInfo.put(info.getClazz(),info);
+        ComponentInfo exists = defaultInfo.putIfAbsent(info.getClazz(),info);
+        while (exists != null) {
+            if (isDeclared(info) && !isDeclared(exists)) {
+                if (defaultInfo.replace(info.getClazz(),exists,info)) {
+                    unregister(exists);
+                    break;
+                }
+                exists = defaultInfo.putIfAbsent(info.getClazz(),info);
+                continue;
+            }
+            if (isDeclared(info) != isDeclared(exists) || isSameBinding(info,exists)) {
+                return exists;
+            }
+            // 同一个类型的另一个组件，总注册表保留先注册的组件
+            break;
+        }
         if (!info.getName().equals(info.getClazz().getName())) {
             namedInfo.put(info.getName(),info);
         }
         if (info.isMultiple()) {
-            Class implFor = info.getAbstractClazz();
-            List<ComponentInfo> infoList = abstractInfo.getOrDefault(implFor,new ArrayList<>());
-            infoList.add(info);
-            abstractInfo.put(implFor,infoList);
-        }
-        List<ComponentInfo> infoList = scopedInfo.getOrDefault(info.getScope(),new ArrayList<>());
-        infoList.add(info);
-        scopedInfo.put(info.getScope(),infoList);
+            abstractInfo.computeIfAbsent(info.getAbstractClazz(),k -> new CopyOnWriteArrayList<>())
+                    .add(info);
+        }
+        scopedInfo.computeIfAbsent(info.getScope(),k -> new CopyOnWriteArrayList<>())
+                .add(info);
+        for (Class superType : findSuperTypes(info.getClazz())) {
+            hierarchyInfo.computeIfAbsent(superType,k -> new CopyOnWriteArrayList<>())
+                    .add(info);
+        }
         info.setRegistered(true);
+        version.incrementAndGet();
         return info;
     }
 
+    /**
+     * @return 注册表发生变化的次数
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    private static boolean isDeclared(ComponentInfo info) {
+        return info.getFactoryMethod() != null;
+    }
+
+    private static boolean isSameBinding(ComponentInfo info, ComponentInfo exists) {
+        return info.getName().equals(exists.getName()) &&
+                Objects.equals(info.getAbstractClazz(),exists.getAbstractClazz());
+    }
+
+    /**
+     * 从各个注册表中移除被替换的组件
+     * @param info 组件描述符
+     */
+    private void unregister(ComponentInfo info) {
+        namedInfo.remove(info.getName(),info);
+        if (info.isMultiple()) {
+            List<ComponentInfo> infoList = abstractInfo.get(info.getAbstractClazz());
+            if (infoList != null) {
+                infoList.remove(info);
+            }
+        }
+        List<ComponentInfo> scoped = scopedInfo.get(info.getScope());
+        if (scoped != null) {
+            scoped.remove(info);
+        }
+        for (List<ComponentInfo> infoList : hierarchyInfo.values()) {
+            infoList.remove(info);
+        }
+    }
+
+    /**
+     * 查找类型的全部父类和接口
+     * @param clazz 类型
+     * @return 父类和接口，不包括类型本身和Object
+     */
+    private static Set<Class> findSuperTypes(Class clazz) {
+        Set<Class> result = new LinkedHashSet<>();
+        Deque<Class> queue = new ArrayDeque<>();
+        queue.add(clazz);
+        while (!queue.isEmpty()) {
+            Class current = queue.poll();
+            Class superClass = current.getSuperclass();
+            if (superClass != null && superClass != Object.class && result.add(superClass)) {
+                queue.add(superClass);
+            }
+            for (Class interfaceType : current.getInterfaces()) {
+                if (result.add(interfaceType)) {
+                    queue.add(interfaceType);
+                }
+            }
+        }
+        return result;
+    }
+
 }
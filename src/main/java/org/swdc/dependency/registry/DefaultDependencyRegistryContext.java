@@ -36,6 +36,37 @@ public class DefaultDependencyRegistryContext extends DefaultDependencyRegister
         return abstractInfo.get(clazz);
     }
 
+    @Override
+    public ComponentInfo findImplementation(Class clazz) {
+        List<ComponentInfo> infoList = hierarchyInfo.get(clazz);
+        if (infoList == null) {
+            return null;
+        }
+        ComponentInfo result = null;
+        List<String> candidates = null;
+        for (ComponentInfo info : infoList) {
+            if (!info.isCreatable()) {
+                continue;
+            }
+            if (result == null) {
+                result = info;
+                continue;
+            }
+            if (candidates == null) {
+                candidates = new ArrayList<>();
+                candidates.add(result.getName());
+            }
+            candidates.add(info.getName());
+        }
+        if (candidates != null) {
+            throw new IllegalStateException("存在多个实现，请使用命名组件的方式处理。\n" +
+                    "there are multiple implementations， please using named annotation。" +
+                    clazz.getName() + " : " + candidates);
+        }
+        return result;
+    }
+
+
     @Override
     public List<ComponentInfo> findByScope(Class scope) {
         if (!Annotation.class.isAssignableFrom(scope)) {
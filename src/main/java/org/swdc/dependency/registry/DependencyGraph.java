@@ -0,0 +1,393 @@
+package org.swdc.dependency.registry;
+
+import org.swdc.dependency.annotations.Lazy;
+import org.swdc.dependency.utils.ReflectionUtil;
+import org.swdc.ours.common.annotations.Annotations;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 组件的依赖图。
+ *
+ * 根据注册空间中的组件信息建立，边由构造方法，工厂方法，
+ * 字段和Setter的依赖组成，从组件指向它依赖的组件。
+ * 拓扑顺序和强连通分量（Tarjan算法）只计算一次，启动和关闭的时候都可以使用。
+ */
+public class DependencyGraph {
+
+    /**
+     * 图中的全部组件
+     */
+    private List<ComponentInfo> components;
+
+    /**
+     * 组件 - 它依赖的组件
+     */
+    private Map<ComponentInfo, List<ComponentInfo>> dependencies = new IdentityHashMap<>();
+
+    /**
+     * 组件 - 创建它需要的组件（构造方法和工厂方法的依赖）
+     */
+    private Map<ComponentInfo, List<ComponentInfo>> creatorDependencies = new IdentityHashMap<>();
+
+    /**
+     * 按照依赖分层的组件，每一层只依赖之前的层
+     */
+    private volatile List<List<ComponentInfo>> levels;
+
+    /**
+     * 存在循环依赖，无法分层的组件
+     */
+    private volatile List<ComponentInfo> cyclic;
+
+    /**
+     * 拓扑顺序
+     */
+    private volatile List<ComponentInfo> order;
+
+    /**
+     * 全部的循环依赖
+     */
+    private volatile List<List<ComponentInfo>> cycles;
+
+    /**
+     * 构造方法和工厂方法之间的循环依赖，这种循环依赖无法通过早期引用解决
+     */
+    private volatile List<List<ComponentInfo>> unresolvableCycles;
+
+    public DependencyGraph(DependencyRegisterContext context) {
+        this.components = context.findAll();
+        for (ComponentInfo info : components) {
+            creatorDependencies.put(info,findCreatorDependencies(info,context));
+            dependencies.put(info,findDependencies(info,context));
+        }
+    }
+
+    private List<ComponentInfo> findDependencies(ComponentInfo info, DependencyRegisterContext context) {
+        Set<ComponentInfo> result = new LinkedHashSet<>(creatorDependencies.get(info));
+        if (info.getConstructorInfo() != null) {
+            Collections.addAll(result,info.getConstructorInfo().getDependencies());
+        }
+        if (info.getFactoryInfo() != null) {
+            Collections.addAll(result,info.getFactoryInfo().getDependencies());
+        }
+        for (DependencyInfo dependencyInfo : info.getDependencyInfos()) {
+            Class elementType = findElementType(dependencyInfo.getField());
+            if (elementType != null) {
+                // List或者Map字段依赖的是泛型类型的全部实现
+                List<ComponentInfo> elements = context.findByAbstract(elementType);
+                if (elements != null) {
+                    result.addAll(elements);
+                }
+                continue;
+            }
+            Collections.addAll(result,dependencyInfo.getDependency());
+        }
+        List<ComponentInfo> implementations = context.findByAbstract(info.getClazz());
+        if (implementations != null) {
+            // 抽象的组件依赖于它的全部实现
+            result.addAll(implementations);
+        }
+        result.remove(null);
+        return new ArrayList<>(result);
+    }
+
+    private List<ComponentInfo> findCreatorDependencies(ComponentInfo info, DependencyRegisterContext context) {
+        Set<ComponentInfo> result = new LinkedHashSet<>();
+        if (info.getConstructorInfo() != null) {
+            ConstructorInfo constructorInfo = info.getConstructorInfo();
+            addCreatorDependencies(result,constructorInfo.getConstructor().getParameters(),constructorInfo.getDependencies());
+        }
+        if (info.getFactoryInfo() != null) {
+            Parameter[] params = info.getFactoryMethod() == null ? new Parameter[0] : info.getFactoryMethod().getParameters();
+            addCreatorDependencies(result,params,info.getFactoryInfo().getDependencies());
+        }
+        if (info.getFactory() != null) {
+            // 非静态的工厂方法需要先创建工厂
+            result.add(context.findByClass(info.getFactory()));
+        }
+        result.remove(null);
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Provider，Supplier和Lazy参数在创建的时候不需要依赖的组件，它们不是创建组件必须的依赖。
+     */
+    private static void addCreatorDependencies(Set<ComponentInfo> result, Parameter[] params, ComponentInfo[] dependencies) {
+        for (int idx = 0; idx < dependencies.length; idx ++) {
+            ComponentInfo dependency = dependencies[idx];
+            if (dependency != null && idx < params.length) {
+                Parameter param = params[idx];
+                if (ReflectionUtil.getProvidedType(param.getParameterizedType()) != null ||
+                        Annotations.findAnnotation(param,Lazy.class) != null ||
+                        Annotations.findAnnotation(dependency.getClazz(),Lazy.class) != null) {
+                    continue;
+                }
+            }
+            result.add(dependency);
+        }
+    }
+
+    private static Class findElementType(Field field) {
+        if (field == null || !(field.getGenericType() instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType paramType = (ParameterizedType) field.getGenericType();
+        Type elementType = null;
+        if (List.class.isAssignableFrom(field.getType())) {
+            elementType = paramType.getActualTypeArguments()[0];
+        } else if (Map.class.isAssignableFrom(field.getType())) {
+            elementType = paramType.getActualTypeArguments()[1];
+        }
+        return elementType instanceof Class ? (Class) elementType : null;
+    }
+
+    public List<ComponentInfo> getComponents() {
+        return components;
+    }
+
+    /**
+     * 组件直接依赖的组件
+     * @param info 组件信息
+     * @return 依赖的组件，不在图中的组件返回空列表
+     */
+    public List<ComponentInfo> getDependencies(ComponentInfo info) {
+        return dependencies.getOrDefault(info,Collections.emptyList());
+    }
+
+    /**
+     * 按照依赖关系对组件分层（Kahn算法），同一层的组件互相不依赖，可以并行创建。
+     * 存在循环依赖的组件无法分层，它们不在这里，请使用getCyclic。
+     * @return 分层的组件，依赖在前
+     */
+    public List<List<ComponentInfo>> getLevels() {
+        List<List<ComponentInfo>> levels = this.levels;
+        if (levels == null) {
+            sort();
+            levels = this.levels;
+        }
+        return levels;
+    }
+
+    /**
+     * 存在循环依赖的组件，它们需要在一个线程中依次创建，
+     * 顺序按照构造方法和工厂方法的依赖排列，构造方法依赖的组件在前。
+     * @return 无法分层的组件
+     */
+    public List<ComponentInfo> getCyclic() {
+        List<ComponentInfo> cyclic = this.cyclic;
+        if (cyclic == null) {
+            sort();
+            cyclic = this.cyclic;
+        }
+        return cyclic;
+    }
+
+    private synchronized void sort() {
+        if (this.levels != null) {
+            return;
+        }
+        List<ComponentInfo> remains = new ArrayList<>();
+        List<List<ComponentInfo>> levels = levels(components,dependencies,remains);
+
+        // 循环依赖的组件只按照创建它们必须的依赖排序
+        List<ComponentInfo> cyclic = new ArrayList<>();
+        List<ComponentInfo> unresolvable = new ArrayList<>();
+        for (List<ComponentInfo> level : levels(remains,creatorDependencies,unresolvable)) {
+            cyclic.addAll(level);
+        }
+        cyclic.addAll(unresolvable);
+
+        this.cyclic = Collections.unmodifiableList(cyclic);
+        this.levels = Collections.unmodifiableList(levels);
+    }
+
+    /**
+     * Kahn算法分层
+     * @param nodes 需要分层的组件
+     * @param edges 组件的依赖
+     * @param remains 无法分层的组件会被放入这里
+     * @return 分层结果
+     */
+    private static List<List<ComponentInfo>> levels(List<ComponentInfo> nodes, Map<ComponentInfo,List<ComponentInfo>> edges, List<ComponentInfo> remains) {
+        Map<ComponentInfo,Integer> counts = new IdentityHashMap<>();
+        for (ComponentInfo info : nodes) {
+            counts.put(info,0);
+        }
+        Map<ComponentInfo,List<ComponentInfo>> dependents = new IdentityHashMap<>();
+        for (ComponentInfo info : nodes) {
+            for (ComponentInfo dependency : edges.getOrDefault(info,Collections.emptyList())) {
+                if (!counts.containsKey(dependency)) {
+                    continue;
+                }
+                counts.put(info,counts.get(info) + 1);
+                dependents.computeIfAbsent(dependency,k -> new ArrayList<>()).add(info);
+            }
+        }
+
+        List<List<ComponentInfo>> levels = new ArrayList<>();
+        List<ComponentInfo> current = new ArrayList<>();
+        for (ComponentInfo info : nodes) {
+            if (counts.get(info) == 0) {
+                current.add(info);
+            }
+        }
+        while (!current.isEmpty()) {
+            levels.add(Collections.unmodifiableList(current));
+            List<ComponentInfo> next = new ArrayList<>();
+            for (ComponentInfo info : current) {
+                for (ComponentInfo dependent : dependents.getOrDefault(info,Collections.emptyList())) {
+                    int count = counts.get(dependent) - 1;
+                    counts.put(dependent,count);
+                    if (count == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            current = next;
+        }
+
+        for (ComponentInfo info : nodes) {
+            if (counts.get(info) > 0) {
+                remains.add(info);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * 组件的拓扑顺序
+     * @return 全部组件，依赖在前
+     */
+    public List<ComponentInfo> getOrder() {
+        List<ComponentInfo> order = this.order;
+        if (order != null) {
+            return order;
+        }
+        order = new ArrayList<>();
+        for (List<ComponentInfo> level : getLevels()) {
+            order.addAll(level);
+        }
+        order.addAll(getCyclic());
+        order = Collections.unmodifiableList(order);
+        this.order = order;
+        return order;
+    }
+
+    /**
+     * 全部的循环依赖，包括可以通过早期引用解决的。
+     * @return 循环依赖的组件，每一组是一个强连通分量
+     */
+    public List<List<ComponentInfo>> getCycles() {
+        List<List<ComponentInfo>> cycles = this.cycles;
+        if (cycles == null) {
+            cycles = stronglyConnected(components,dependencies);
+            this.cycles = cycles;
+        }
+        return cycles;
+    }
+
+    /**
+     * 只由构造方法和工厂方法组成的循环依赖，
+     * 组件在构造完成之前没有早期引用，所以这种循环依赖无法解决。
+     * @return 无法解决的循环依赖
+     */
+    public List<List<ComponentInfo>> getUnresolvableCycles() {
+        List<List<ComponentInfo>> cycles = this.unresolvableCycles;
+        if (cycles == null) {
+            cycles = stronglyConnected(components,creatorDependencies);
+            this.unresolvableCycles = cycles;
+        }
+        return cycles;
+    }
+
+    /**
+     * Tarjan算法查找强连通分量，使用显式的栈代替递归，
+     * 依赖链很长的时候也不会栈溢出。
+     * @param nodes 组件
+     * @param edges 组件的依赖
+     * @return 包含多个组件或者依赖自己的强连通分量
+     */
+    private static List<List<ComponentInfo>> stronglyConnected(List<ComponentInfo> nodes, Map<ComponentInfo,List<ComponentInfo>> edges) {
+        Map<ComponentInfo,Integer> index = new IdentityHashMap<>();
+        Map<ComponentInfo,Integer> lowLink = new IdentityHashMap<>();
+        Set<ComponentInfo> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<ComponentInfo> stack = new ArrayDeque<>();
+        List<List<ComponentInfo>> result = new ArrayList<>();
+        int counter = 0;
+
+        for (ComponentInfo root : nodes) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            Deque<ComponentInfo> path = new ArrayDeque<>();
+            Deque<Iterator<ComponentInfo>> iterators = new ArrayDeque<>();
+
+            index.put(root,counter);
+            lowLink.put(root,counter);
+            counter ++;
+            stack.push(root);
+            onStack.add(root);
+            path.push(root);
+            iterators.push(edges.get(root).iterator());
+
+            while (!path.isEmpty()) {
+                ComponentInfo node = path.peek();
+                Iterator<ComponentInfo> iterator = iterators.peek();
+                if (iterator.hasNext()) {
+                    ComponentInfo next = iterator.next();
+                    if (!edges.containsKey(next)) {
+                        continue;
+                    }
+                    if (!index.containsKey(next)) {
+                        index.put(next,counter);
+                        lowLink.put(next,counter);
+                        counter ++;
+                        stack.push(next);
+                        onStack.add(next);
+                        path.push(next);
+                        iterators.push(edges.get(next).iterator());
+                    } else if (onStack.contains(next)) {
+                        lowLink.put(node,Math.min(lowLink.get(node),index.get(next)));
+                    }
+                    continue;
+                }
+
+                path.pop();
+                iterators.pop();
+                if (!path.isEmpty()) {
+                    ComponentInfo parent = path.peek();
+                    lowLink.put(parent,Math.min(lowLink.get(parent),lowLink.get(node)));
+                }
+                if (lowLink.get(node).equals(index.get(node))) {
+                    List<ComponentInfo> component = new ArrayList<>();
+                    ComponentInfo member = null;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    } while (member != node);
+                    if (component.size() > 1 || edges.get(node).contains(node)) {
+                        Collections.reverse(component);
+                        result.add(Collections.unmodifiableList(component));
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+}
@@ -31,6 +31,13 @@ public interface DependencyRegisterContext extends DependencyRegister {
      */
     List<ComponentInfo> findByAbstract(Class clazz);
 
+    /**
+     * 根据父类或接口查找唯一的实现
+     * @param clazz 父类或接口
+     * @return 可以创建的实现，没有实现的时候返回空，存在多个实现的时候抛出异常
+     */
+    ComponentInfo findImplementation(Class clazz);
+
     /**
      * 查找某一个scope里面的所有组件
      * @param scope
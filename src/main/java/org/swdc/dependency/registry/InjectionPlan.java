@@ -0,0 +1,303 @@
+package org.swdc.dependency.registry;
+
+import org.swdc.dependency.ComponentInstantiator;
+import org.swdc.dependency.annotations.AsyncInit;
+import org.swdc.dependency.annotations.Lazy;
+import org.swdc.dependency.utils.ReflectionUtil;
+import org.swdc.ours.common.annotations.Annotations;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 组件的注入计划。
+ *
+ * 组件第一次被创建的时候，根据ConstructorInfo，FactoryDependencyInfo
+ * 和DependencyInfo编译为一组MethodHandle并缓存在ComponentInfo上，
+ * 之后的创建直接按照计划执行，不再重复进行反射的解析和调用。
+ */
+public class InjectionPlan {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final MethodType FIELD_SETTER = MethodType.methodType(void.class,Object.class,Object.class);
+
+    private static final MethodType INSTANCE_METHOD = MethodType.methodType(void.class,Object.class);
+
+    /**
+     * 创建组件的MethodHandle。
+     * 构造方法：(Object[])Object
+     * 工厂方法：(Object,Object[])Object，静态工厂会忽略第一个参数。
+     */
+    private MethodHandle creator;
+
+    /**
+     * 运行时生成的实例化器，存在的时候优先使用
+     */
+    private volatile ComponentInstantiator instantiator;
+
+    /**
+     * 是否通过工厂方法创建
+     */
+    private boolean byFactory;
+
+    /**
+     * 工厂方法是否返回CompletionStage
+     */
+    private boolean asyncFactory;
+
+    /**
+     * 创建组件需要的依赖
+     */
+    private ComponentInfo[] creatorDependencies;
+
+    /**
+     * 创建组件的依赖中需要延迟注入的类型，不需要延迟的为空，
+     * Provider和Supplier类型会注入组件的Provider，其他类型注入延迟代理。
+     */
+    private Class[] creatorLazyTypes;
+
+    /**
+     * 字段和Setter的注入点
+     */
+    private InjectionPoint[] injectionPoints;
+
+    /**
+     * 初始化方法：(Object)void
+     */
+    private MethodHandle initMethod;
+
+    /**
+     * 初始化方法是否在线程池中异步执行
+     */
+    private boolean asyncInit;
+
+    private InjectionPlan() {
+    }
+
+    /**
+     * 按照计划创建组件
+     * @param factory 工厂对象，通过构造方法或静态工厂创建的时候可以为空
+     * @param params 创建需要的参数
+     * @return 创建好的未初始化的组件
+     * @throws Throwable 创建失败
+     */
+    public Object newInstance(Object factory, Object[] params) throws Throwable {
+        ComponentInstantiator instantiator = this.instantiator;
+        if (instantiator != null) {
+            return instantiator.newInstance(factory,params);
+        }
+        if (byFactory) {
+            return (Object) creator.invokeExact(factory,params);
+        }
+        return (Object) creator.invokeExact(params);
+    }
+
+    /**
+     * 执行组件的初始化方法
+     * @param target 组件对象
+     * @throws Throwable 初始化失败
+     */
+    public void invokeInit(Object target) throws Throwable {
+        if (initMethod != null) {
+            initMethod.invokeExact(target);
+        }
+    }
+
+    public void setInstantiator(ComponentInstantiator instantiator) {
+        this.instantiator = instantiator;
+    }
+
+    /**
+     * @return 运行时生成的实例化器，没有生成的时候为空
+     */
+    public ComponentInstantiator getInstantiator() {
+        return instantiator;
+    }
+
+    public ComponentInfo[] getCreatorDependencies() {
+        return creatorDependencies;
+    }
+
+    public Class[] getCreatorLazyTypes() {
+        return creatorLazyTypes;
+    }
+
+    public InjectionPoint[] getInjectionPoints() {
+        return injectionPoints;
+    }
+
+    public boolean hasInitMethod() {
+        return initMethod != null;
+    }
+
+    public boolean isAsyncFactory() {
+        return asyncFactory;
+    }
+
+    public boolean isAsyncInit() {
+        return asyncInit;
+    }
+
+    /**
+     * 根据组件信息编译注入计划。
+     * @param info 组件信息
+     * @return 注入计划
+     */
+    public static InjectionPlan compile(ComponentInfo info) {
+        InjectionPlan plan = new InjectionPlan();
+        try {
+            if (info.getFactory() != null) {
+                Method method = info.getFactoryMethod();
+                MethodHandle handle = unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    handle = spread(handle, method.getParameterCount());
+                    handle = MethodHandles.dropArguments(handle,0,Object.class);
+                } else {
+                    handle = spread(handle,method.getParameterCount());
+                }
+                plan.creator = handle;
+                plan.byFactory = true;
+                plan.asyncFactory = CompletionStage.class.isAssignableFrom(method.getReturnType());
+                plan.creatorDependencies = info.getFactoryInfo().getDependencies();
+                plan.creatorLazyTypes = lazyTypes(method.getParameters(),plan.creatorDependencies);
+            } else if (info.getConstructorInfo() != null) {
+                ConstructorInfo constructorInfo = info.getConstructorInfo();
+                Constructor constructor = constructorInfo.getConstructor();
+                plan.creator = spread(unreflect(constructor),constructor.getParameterCount());
+                plan.creatorDependencies = constructorInfo.getDependencies();
+                plan.creatorLazyTypes = lazyTypes(constructor.getParameters(),plan.creatorDependencies);
+            } else {
+                Constructor constructor = null;
+                try {
+                    constructor = info.getClazz().getConstructor();
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException("No suitable constructor: " + info.getClazz().getName(),e);
+                }
+                plan.creator = spread(unreflect(constructor),0);
+                plan.creatorDependencies = new ComponentInfo[0];
+                plan.creatorLazyTypes = new Class[0];
+            }
+
+            List<DependencyInfo> dependencyInfos = info.getDependencyInfos();
+            InjectionPoint[] points = new InjectionPoint[dependencyInfos.size()];
+            for (int idx = 0; idx < points.length; idx ++) {
+                points[idx] = compilePoint(dependencyInfos.get(idx));
+            }
+            plan.injectionPoints = points;
+
+            if (info.getInitMethod() != null) {
+                plan.initMethod = unreflect(info.getInitMethod()).asType(INSTANCE_METHOD);
+                plan.asyncInit = Annotations.findAnnotation(info.getInitMethod(),AsyncInit.class) != null;
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("无法访问组件的注入点：" + info.getClazz().getName(),e);
+        }
+        return plan;
+    }
+
+    private static InjectionPoint compilePoint(DependencyInfo depInfo) throws IllegalAccessException {
+        if (depInfo.getField() == null) {
+            Method setter = depInfo.getSetter();
+            MethodHandle handle = spread(unreflect(setter),setter.getParameterCount());
+            Class[] lazyTypes = lazyTypes(setter.getParameters(),depInfo.getDependency());
+            if (Annotations.findAnnotation(setter,Lazy.class) != null) {
+                // Setter上的标记对全部参数有效
+                for (int idx = 0; idx < lazyTypes.length; idx ++) {
+                    if (lazyTypes[idx] == null) {
+                        lazyTypes[idx] = setter.getParameterTypes()[idx];
+                    }
+                }
+            }
+            return new InjectionPoint(depInfo, InjectionPoint.Type.SETTER,handle,null,lazyTypes);
+        }
+
+        Field field = depInfo.getField();
+        field.trySetAccessible();
+        MethodHandle handle = lookup.unreflectSetter(field).asType(FIELD_SETTER);
+
+        // 泛型，如果field为List或者map，
+        // 这里记录List或者Map的泛型的真实类型
+        if (field.getGenericType() instanceof ParameterizedType) {
+            ParameterizedType paramType = (ParameterizedType) field.getGenericType();
+            if (List.class.isAssignableFrom(field.getType())) {
+                Class elementType = (Class) paramType.getActualTypeArguments()[0];
+                return new InjectionPoint(depInfo, InjectionPoint.Type.LIST,handle,elementType);
+            } else if (Map.class.isAssignableFrom(field.getType())) {
+                Class elementType = (Class) paramType.getActualTypeArguments()[1];
+                Class keyType = (Class) paramType.getActualTypeArguments()[0];
+                if (keyType == String.class) {
+                    return new InjectionPoint(depInfo, InjectionPoint.Type.NAMED_MAP,handle,elementType);
+                } else if (keyType == Class.class) {
+                    return new InjectionPoint(depInfo, InjectionPoint.Type.TYPED_MAP,handle,elementType);
+                }
+                throw new RuntimeException("map的批量注入的Key的类型只支持String和Class");
+            }
+        }
+        Class lazyType = lazyType(field,field.getGenericType(),field.getType(),depInfo.getDependency()[0]);
+        return new InjectionPoint(depInfo, InjectionPoint.Type.FIELD,handle,null,new Class[] { lazyType });
+    }
+
+    private static Class[] lazyTypes(Parameter[] params, ComponentInfo[] dependencies) {
+        Class[] result = new Class[params.length];
+        for (int idx = 0; idx < params.length && idx < dependencies.length; idx ++) {
+            Parameter param = params[idx];
+            result[idx] = lazyType(param,param.getParameterizedType(),param.getType(),dependencies[idx]);
+        }
+        return result;
+    }
+
+    /**
+     * Provider和Supplier注入点，以及注入点或者被注入的组件标记了Lazy的时候需要延迟注入
+     * @param element 注入点
+     * @param genericType 注入点的泛型类型
+     * @param type 注入点的类型
+     * @param dependency 被注入的组件
+     * @return 延迟注入的时候是注入点的类型，否则为空
+     */
+    private static Class lazyType(AnnotatedElement element, Type genericType, Class type, ComponentInfo dependency) {
+        if (dependency == null) {
+            return null;
+        }
+        if (ReflectionUtil.getProvidedType(genericType) != null ||
+                Annotations.findAnnotation(element,Lazy.class) != null ||
+                Annotations.findAnnotation(dependency.getClazz(),Lazy.class) != null) {
+            return type;
+        }
+        return null;
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+        method.trySetAccessible();
+        return lookup.unreflect(method);
+    }
+
+    private static MethodHandle unreflect(Constructor constructor) throws IllegalAccessException {
+        constructor.trySetAccessible();
+        return lookup.unreflectConstructor(constructor);
+    }
+
+    /**
+     * 将参数展开为Object[]，返回值统一为Object。
+     * @param handle 原始的MethodHandle
+     * @param count 需要展开的参数个数
+     * @return 展开后的MethodHandle
+     */
+    private static MethodHandle spread(MethodHandle handle, int count) {
+        return handle.asType(handle.type().generic())
+                .asSpreader(Object[].class,count);
+    }
+
+}
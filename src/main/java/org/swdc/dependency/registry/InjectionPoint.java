@@ -0,0 +1,135 @@
+package org.swdc.dependency.registry;
+
+import org.swdc.dependency.SetterInvoker;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * 编译后的注入点。
+ *
+ * 由DependencyInfo生成，字段和Setter都已经转换为
+ * MethodHandle，注入的时候不再需要反射。
+ */
+public class InjectionPoint {
+
+    public enum Type {
+
+        /**
+         * Setter方法注入
+         */
+        SETTER,
+
+        /**
+         * 普通的字段注入
+         */
+        FIELD,
+
+        /**
+         * List字段，注入某个接口的全部实现
+         */
+        LIST,
+
+        /**
+         * Map字段，使用实现类的SimpleName作为Key
+         */
+        NAMED_MAP,
+
+        /**
+         * Map字段，使用实现类的Class作为Key
+         */
+        TYPED_MAP
+
+    }
+
+    private Type type;
+
+    /**
+     * 字段：(Object,Object)void
+     * Setter：(Object,Object[])Object
+     */
+    private MethodHandle handle;
+
+    /**
+     * 运行时生成的Setter调用器，存在的时候优先使用
+     */
+    private volatile SetterInvoker invoker;
+
+    private ComponentInfo[] dependencies;
+
+    /**
+     * List或Map字段的泛型的真实类型
+     */
+    private Class elementType;
+
+    /**
+     * 需要延迟注入的依赖的类型，和dependencies一一对应，不需要延迟的为空，
+     * Provider和Supplier类型会注入组件的Provider。
+     */
+    private Class[] lazyTypes;
+
+    private DependencyInfo source;
+
+    public InjectionPoint(DependencyInfo source, Type type, MethodHandle handle, Class elementType) {
+        this(source,type,handle,elementType,new Class[source.getDependency().length]);
+    }
+
+    public InjectionPoint(DependencyInfo source, Type type, MethodHandle handle, Class elementType, Class[] lazyTypes) {
+        this.source = source;
+        this.type = type;
+        this.handle = handle;
+        this.elementType = elementType;
+        this.dependencies = source.getDependency();
+        this.lazyTypes = lazyTypes;
+    }
+
+    /**
+     * 执行注入
+     * @param target 目标对象
+     * @param value 字段的值，或者Setter的参数
+     * @throws Throwable 注入失败
+     */
+    public void inject(Object target, Object value) throws Throwable {
+        if (type == Type.SETTER) {
+            SetterInvoker invoker = this.invoker;
+            if (invoker != null) {
+                invoker.invoke(target,(Object[]) value);
+                return;
+            }
+            Object ignored = (Object) handle.invokeExact(target, (Object[]) value);
+        } else {
+            handle.invokeExact(target, value);
+        }
+    }
+
+    public void setInvoker(SetterInvoker invoker) {
+        this.invoker = invoker;
+    }
+
+    /**
+     * @return 运行时生成的Setter调用器，没有生成的时候为空
+     */
+    public SetterInvoker getInvoker() {
+        return invoker;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public ComponentInfo[] getDependencies() {
+        return dependencies;
+    }
+
+    public Class[] getLazyTypes() {
+        return lazyTypes;
+    }
+
+    public Class getElementType() {
+        return elementType;
+    }
+
+    public DependencyInfo getSource() {
+        return source;
+    }
+
+}
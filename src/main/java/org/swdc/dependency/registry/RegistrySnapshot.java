@@ -0,0 +1,456 @@
+package org.swdc.dependency.registry;
+
+import org.swdc.dependency.interceptor.AspectAt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组件注册空间的二进制快照。
+ *
+ * 把解析完成的组件信息（构造方法，工厂，字段和Setter的注入点，切面）
+ * 写入一个紧凑的二进制文件，文件以ClassPath的指纹作为标识，
+ * 下次启动时一次读入内存并直接注册，不再需要解析注解。
+ * 读取的时候不使用内存映射，映射在被GC回收之前会占用文件，快照无法在原来的位置被重新写入。
+ *
+ * 文件结构：
+ * 魔数，版本，指纹，字符串表，组件表（类型，名称，作用域），组件的详细信息。
+ * 组件之间的引用使用组件表中的序号，-1表示空。
+ *
+ * 快照保存的是AfterRegisterListener处理后的组件信息，恢复的时候不会再次调用Listener。
+ */
+public class RegistrySnapshot {
+
+    private static final int MAGIC = 0x53574443;
+
+    private static final int VERSION = 1;
+
+    private static final Map<String,Class> primitives = new HashMap<>();
+
+    static {
+        for (Class type : new Class[] {
+                boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class, void.class
+        }) {
+            primitives.put(type.getName(),type);
+        }
+    }
+
+    /**
+     * 写入快照
+     * @param file 快照文件
+     * @param fingerprint ClassPath的指纹
+     * @param context 组件注册空间
+     * @throws IOException 写入失败
+     */
+    public static void write(Path file, String fingerprint, DependencyRegisterContext context) throws IOException {
+        // 注册的组件和它们引用的组件（可能尚未注册）
+        List<ComponentInfo> infos = new ArrayList<>(context.findAll());
+        Map<ComponentInfo,Integer> indexes = new IdentityHashMap<>();
+        for (int idx = 0; idx < infos.size(); idx ++) {
+            indexes.put(infos.get(idx),idx);
+        }
+        for (int idx = 0; idx < infos.size(); idx ++) {
+            for (ComponentInfo referenced : findReferences(infos.get(idx))) {
+                if (referenced != null && !indexes.containsKey(referenced)) {
+                    indexes.put(referenced,infos.size());
+                    infos.add(referenced);
+                }
+            }
+        }
+
+        Writer writer = new Writer(indexes);
+        writer.writeInt(infos.size());
+        for (ComponentInfo info : infos) {
+            writer.writeClass(info.getClazz());
+            writer.writeString(info.getName());
+            writer.writeClass(info.getScope());
+            writer.writeClass(info.getAbstractClazz());
+            writer.writeBoolean(info.isMultiple());
+        }
+        for (ComponentInfo info : infos) {
+            writer.writeInfo(info);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeUTF(out,fingerprint);
+        out.writeInt(writer.strings.size());
+        for (String str : writer.strings.keySet()) {
+            writeUTF(out,str);
+        }
+        writer.body.writeTo(out);
+        out.flush();
+
+        Path folder = file.toAbsolutePath().getParent();
+        if (folder != null) {
+            Files.createDirectories(folder);
+        }
+        Path temp = Files.createTempFile(folder,file.getFileName().toString(),".tmp");
+        try {
+            Files.write(temp,bytes.toByteArray());
+            try {
+                Files.move(temp,file,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp,file,StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 读取快照并注册其中的组件。
+     *
+     * 快照不存在，指纹不一致，或者其中的类已经无法加载的时候不会注册任何组件，
+     * 注册空间中已经存在组件的时候也不会读取。
+     *
+     * @param file 快照文件
+     * @param fingerprint ClassPath的指纹
+     * @param classLoader 加载组件类的ClassLoader
+     * @param context 组件注册空间
+     * @return 恢复的组件，没有恢复的时候返回空列表
+     */
+    public static List<ComponentInfo> read(Path file, String fingerprint, ClassLoader classLoader, DependencyRegisterContext context) {
+        if (!Files.isRegularFile(file) || !context.findAll().isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION ||
+                    !fingerprint.equals(readUTF(buffer))) {
+                return Collections.emptyList();
+            }
+            String[] strings = new String[buffer.getInt()];
+            for (int idx = 0; idx < strings.length; idx ++) {
+                strings[idx] = readUTF(buffer);
+            }
+
+            Reader reader = new Reader(buffer,strings,classLoader);
+            ComponentInfo[] infos = new ComponentInfo[buffer.getInt()];
+            reader.infos = infos;
+            for (int idx = 0; idx < infos.length; idx ++) {
+                Class clazz = reader.readClass();
+                String name = reader.readString();
+                Class scope = reader.readClass();
+                Class abstractClazz = reader.readClass();
+                boolean multiple = reader.readBoolean();
+                infos[idx] = multiple ?
+                        new ComponentInfo(abstractClazz,clazz,name,scope) :
+                        new ComponentInfo(clazz,name,scope);
+            }
+            boolean[] registered = new boolean[infos.length];
+            for (int idx = 0; idx < infos.length; idx ++) {
+                registered[idx] = reader.readInfo(infos[idx]);
+            }
+            // 切面的标记全部读取完毕后才能添加切面
+            for (Map.Entry<ComponentInfo,int[]> advices : reader.adviceBy.entrySet()) {
+                for (int ref : advices.getValue()) {
+                    advices.getKey().addAdviceBy(infos[ref]);
+                }
+            }
+
+            List<ComponentInfo> result = new ArrayList<>();
+            for (int idx = 0; idx < infos.length; idx ++) {
+                if (registered[idx]) {
+                    result.add(context.register(infos[idx]));
+                }
+            }
+            return result;
+        } catch (Exception | LinkageError e) {
+            // 快照已经无法使用，重新解析组件。
+            return Collections.emptyList();
+        }
+    }
+
+    private static List<ComponentInfo> findReferences(ComponentInfo info) {
+        List<ComponentInfo> result = new ArrayList<>();
+        if (info.getConstructorInfo() != null) {
+            Collections.addAll(result,info.getConstructorInfo().getDependencies());
+        }
+        if (info.getFactoryInfo() != null) {
+            Collections.addAll(result,info.getFactoryInfo().getDependencies());
+        }
+        for (DependencyInfo dependencyInfo : info.getDependencyInfos()) {
+            Collections.addAll(result,dependencyInfo.getDependency());
+        }
+        result.addAll(info.getAdviceBy());
+        return result;
+    }
+
+    private static void writeUTF(DataOutputStream out, String str) throws IOException {
+        byte[] data = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readUTF(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return new String(data,StandardCharsets.UTF_8);
+    }
+
+    private static class Writer {
+
+        private Map<String,Integer> strings = new LinkedHashMap<>();
+        private Map<ComponentInfo,Integer> indexes;
+        private ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private DataOutputStream out = new DataOutputStream(body);
+
+        Writer(Map<ComponentInfo,Integer> indexes) {
+            this.indexes = indexes;
+        }
+
+        void writeInfo(ComponentInfo info) throws IOException {
+            writeBoolean(info.isRegistered());
+            writeBoolean(info.isResolved());
+            writeClass(info.getFactory());
+            writeMethod(info.getFactoryMethod());
+
+            FactoryDependencyInfo factoryInfo = info.getFactoryInfo();
+            writeBoolean(factoryInfo != null);
+            if (factoryInfo != null) {
+                writeRefs(factoryInfo.getDependencies());
+                writeBoolean(factoryInfo.isStatic());
+            }
+
+            ConstructorInfo constructorInfo = info.getConstructorInfo();
+            writeBoolean(constructorInfo != null);
+            if (constructorInfo != null) {
+                writeClasses(constructorInfo.getConstructor().getParameterTypes());
+                writeRefs(constructorInfo.getDependencies());
+            }
+
+            writeInt(info.getDependencyInfos().size());
+            for (DependencyInfo dependencyInfo : info.getDependencyInfos()) {
+                Field field = dependencyInfo.getField();
+                writeBoolean(field != null);
+                if (field != null) {
+                    writeClass(field.getDeclaringClass());
+                    writeString(field.getName());
+                    writeRef(dependencyInfo.getDependency()[0]);
+                } else {
+                    writeMethod(dependencyInfo.getSetter());
+                    writeRefs(dependencyInfo.getDependency());
+                }
+            }
+
+            writeMethod(info.getInitMethod());
+            writeMethod(info.getDestroyMethod());
+
+            writeBoolean(info.isInterceptor());
+            writeInt(info.getInterceptorInfos().size());
+            for (InterceptorInfo interceptorInfo : info.getInterceptorInfos()) {
+                writeString(interceptorInfo.getNamePattern());
+                writeClass(interceptorInfo.getAnnotationType());
+                writeBoolean(interceptorInfo.getReturnType() != null);
+                if (interceptorInfo.getReturnType() != null) {
+                    writeClasses(interceptorInfo.getReturnType());
+                }
+                writeString(interceptorInfo.getAt() == null ? null : interceptorInfo.getAt().name());
+                writeInt(interceptorInfo.getOrder());
+                writeMethod(interceptorInfo.getMethod());
+            }
+            writeRefs(info.getAdviceBy().toArray(new ComponentInfo[0]));
+        }
+
+        void writeMethod(Method method) throws IOException {
+            writeBoolean(method != null);
+            if (method != null) {
+                writeClass(method.getDeclaringClass());
+                writeString(method.getName());
+                writeClasses(method.getParameterTypes());
+            }
+        }
+
+        void writeClasses(Class[] classes) throws IOException {
+            writeInt(classes.length);
+            for (Class clazz : classes) {
+                writeClass(clazz);
+            }
+        }
+
+        void writeRefs(ComponentInfo[] infos) throws IOException {
+            writeInt(infos.length);
+            for (ComponentInfo info : infos) {
+                writeRef(info);
+            }
+        }
+
+        void writeRef(ComponentInfo info) throws IOException {
+            writeInt(info == null ? -1 : indexes.get(info));
+        }
+
+        void writeClass(Class clazz) throws IOException {
+            writeString(clazz == null ? null : clazz.getName());
+        }
+
+        void writeString(String str) throws IOException {
+            if (str == null) {
+                writeInt(-1);
+                return;
+            }
+            Integer idx = strings.get(str);
+            if (idx == null) {
+                idx = strings.size();
+                strings.put(str,idx);
+            }
+            writeInt(idx);
+        }
+
+        void writeInt(int val) throws IOException {
+            out.writeInt(val);
+        }
+
+        void writeBoolean(boolean val) throws IOException {
+            out.writeBoolean(val);
+        }
+
+    }
+
+    private static class Reader {
+
+        private ByteBuffer buffer;
+        private String[] strings;
+        private ClassLoader classLoader;
+        private ComponentInfo[] infos;
+        private Map<ComponentInfo,int[]> adviceBy = new IdentityHashMap<>();
+
+        Reader(ByteBuffer buffer, String[] strings, ClassLoader classLoader) {
+            this.buffer = buffer;
+            this.strings = strings;
+            this.classLoader = classLoader;
+        }
+
+        boolean readInfo(ComponentInfo info) throws ReflectiveOperationException {
+            boolean registered = readBoolean();
+            info.setResolved(readBoolean());
+            info.setFactory(readClass());
+            info.setFactoryMethod(readMethod());
+
+            if (readBoolean()) {
+                ComponentInfo[] refs = readRefs();
+                info.setFactoryInfo(new FactoryDependencyInfo(refs,readBoolean()));
+            }
+
+            if (readBoolean()) {
+                Constructor constructor = info.getClazz().getDeclaredConstructor(readClasses());
+                info.setConstructorInfo(new ConstructorInfo(constructor,readRefs()));
+            }
+
+            int dependencies = readInt();
+            for (int idx = 0; idx < dependencies; idx ++) {
+                if (readBoolean()) {
+                    Class declaring = readClass();
+                    Field field = declaring.getDeclaredField(readString());
+                    info.getDependencyInfos().add(new DependencyInfo(field,readRef()));
+                } else {
+                    Method setter = readMethod();
+                    info.getDependencyInfos().add(new DependencyInfo(setter,readRefs()));
+                }
+            }
+
+            info.setInitMethod(readMethod());
+            info.setDestroyMethod(readMethod());
+
+            info.setInterceptor(readBoolean());
+            int interceptors = readInt();
+            for (int idx = 0; idx < interceptors; idx ++) {
+                InterceptorInfo interceptorInfo = new InterceptorInfo();
+                interceptorInfo.setNamePattern(readString());
+                interceptorInfo.setAnnotationType(readClass());
+                if (readBoolean()) {
+                    interceptorInfo.setReturnType(readClasses());
+                }
+                String at = readString();
+                interceptorInfo.setAt(at == null ? null : AspectAt.valueOf(at));
+                interceptorInfo.setOrder(readInt());
+                interceptorInfo.setMethod(readMethod());
+                info.addInterceptorInfo(interceptorInfo);
+            }
+
+            int[] advices = new int[readInt()];
+            for (int idx = 0; idx < advices.length; idx ++) {
+                advices[idx] = readInt();
+            }
+            adviceBy.put(info,advices);
+            return registered;
+        }
+
+        Method readMethod() throws ReflectiveOperationException {
+            if (!readBoolean()) {
+                return null;
+            }
+            Class declaring = readClass();
+            String name = readString();
+            return declaring.getDeclaredMethod(name,readClasses());
+        }
+
+        Class[] readClasses() throws ClassNotFoundException {
+            Class[] classes = new Class[readInt()];
+            for (int idx = 0; idx < classes.length; idx ++) {
+                classes[idx] = readClass();
+            }
+            return classes;
+        }
+
+        ComponentInfo[] readRefs() {
+            ComponentInfo[] refs = new ComponentInfo[readInt()];
+            for (int idx = 0; idx < refs.length; idx ++) {
+                refs[idx] = readRef();
+            }
+            return refs;
+        }
+
+        ComponentInfo readRef() {
+            int idx = readInt();
+            return idx < 0 ? null : infos[idx];
+        }
+
+        Class readClass() throws ClassNotFoundException {
+            String name = readString();
+            if (name == null) {
+                return null;
+            }
+            Class primitive = primitives.get(name);
+            if (primitive != null) {
+                return primitive;
+            }
+            return Class.forName(name,false,classLoader);
+        }
+
+        String readString() {
+            int idx = readInt();
+            return idx < 0 ? null : strings[idx];
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+    }
+
+}
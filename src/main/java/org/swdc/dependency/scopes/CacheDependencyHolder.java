@@ -4,7 +4,6 @@ import org.swdc.dependency.DependencyContext;
 import org.swdc.dependency.registry.ComponentInfo;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 组件的临时缓存池。
@@ -12,13 +11,16 @@ import java.util.stream.Collectors;
  * 未完成创建的组件会临时性存放的位置。
  * 用来检查和处理循环依赖。
  *
+ * 缓存池属于正在创建组件的线程，每个线程有自己的缓存池，
+ * 不同线程创建的组件不会看到对方未完成的对象，因此这里不需要同步。
+ *
  */
 public class CacheDependencyHolder implements DependencyContext {
 
-    private Map<Class, List<Object>> typedCache = new HashMap<>();
+    private Map<Class, Object> typedCache = new HashMap<>();
     private Map<Class, List<Object>> multipleCache = new HashMap<>();
     private Map<String, Object> namedCache = new HashMap<>();
-    private List<Class> creating = new ArrayList<>();
+    private Set<Class> creating = new HashSet<>();
 
     public void begin(Class clazz) {
         creating.add(clazz);
@@ -28,21 +30,25 @@ public class CacheDependencyHolder implements DependencyContext {
         return creating.contains(clazz);
     }
 
+    /**
+     * @return 当前线程是否有正在创建的组件
+     */
+    public boolean isEmpty() {
+        return creating.isEmpty() && typedCache.isEmpty();
+    }
+
     public <T> T put(ComponentInfo info, T unResolved) {
         creating.remove(info.getClazz());
 
-        List<Object> instanceList = typedCache.getOrDefault(info.getClazz(),new ArrayList<>());
-        instanceList.add(unResolved);
-        typedCache.put(info.getClazz(),instanceList);
+        typedCache.put(info.getClazz(),unResolved);
 
         if (info.getName() != null) {
             namedCache.put(info.getName(),unResolved);
         }
 
         if (info.getAbstractClazz() != null) {
-            instanceList = multipleCache.getOrDefault(info.getClazz(),new ArrayList<>());
-            instanceList.add(unResolved);
-            typedCache.put(info.getClazz(),instanceList);
+            multipleCache.computeIfAbsent(info.getAbstractClazz(),k -> new ArrayList<>())
+                    .add(unResolved);
         }
 
         return unResolved;
@@ -52,22 +58,33 @@ public class CacheDependencyHolder implements DependencyContext {
         if (isCreating(info.getClazz())) {
             throw new RuntimeException("组件尚未创建完成。");
         }
-        this.typedCache.remove(info.getClazz());
-        if (!info.getName().equals(info.getClazz().getName())) {
+        this.discard(info);
+    }
+
+    /**
+     * 移除组件的全部缓存，组件创建完成或者创建失败的时候使用。
+     * @param info 组件信息
+     */
+    public void discard(ComponentInfo info) {
+        creating.remove(info.getClazz());
+        Object unResolved = this.typedCache.remove(info.getClazz());
+        if (info.getName() != null) {
             namedCache.remove(info.getName());
         }
-        if (info.getAbstractClazz() != null) {
-            multipleCache.remove(info.getClazz());
+        if (info.getAbstractClazz() != null && unResolved != null) {
+            List<Object> instances = multipleCache.get(info.getAbstractClazz());
+            if (instances != null) {
+                instances.remove(unResolved);
+                if (instances.isEmpty()) {
+                    multipleCache.remove(info.getAbstractClazz());
+                }
+            }
         }
     }
 
     @Override
     public Object getByClass(Class clazz) {
-        List<Object> instances = typedCache.get(clazz);
-        if (instances == null || instances.size() > 1) {
-            return null;
-        }
-        return instances.get(0);
+        return typedCache.get(clazz);
     }
 
     @Override
@@ -82,9 +99,6 @@ public class CacheDependencyHolder implements DependencyContext {
 
     @Override
     public List<Object> getAllComponent() {
-        return  typedCache.values()
-                .stream()
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+        return new ArrayList<>(typedCache.values());
     }
 }
@@ -0,0 +1,469 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.annotations.Cached;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存组件的Scope。
+ *
+ * 获取组件的时候返回代理对象，代理对象的方法调用交给缓存中的组件处理，
+ * 组件不在缓存中的时候通过依赖环境重新创建。调用者只持有代理对象，
+ * 因此被移出缓存的组件可以被回收，内存的占用不会超过缓存的容量。
+ *
+ * 组件数量超过容量的时候移出最久没有使用的组件，超过存活时间的组件在下一次访问的时候移出，
+ * 移出的组件在通过代理对象进行的调用全部结束后执行PreDestroy方法，
+ * Scope关闭之后代理对象不再创建组件。
+ */
+public class CachedDependencyScope extends ProxiedDependencyScope<ProxiedDependencyScope.Binding> {
+
+    /**
+     * 缓存中的组件
+     */
+    private static class Entry {
+
+        private final Class clazz;
+
+        /**
+         * 强引用的组件，软引用的时候为空
+         */
+        private final Object value;
+
+        private final ComponentReference reference;
+
+        /**
+         * 过期的时间（nanoTime），0表示不过期
+         */
+        private final long expireAt;
+
+        /**
+         * 正在进行的调用数量，只在持有entries的锁并且组件在缓存中的时候增加
+         */
+        private final AtomicInteger calls = new AtomicInteger();
+
+        /**
+         * 是否已经被移出缓存
+         */
+        private volatile boolean retired;
+
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        Entry(Class clazz, Object value, ComponentReference reference, long expireAt) {
+            this.clazz = clazz;
+            this.value = value;
+            this.reference = reference;
+            this.expireAt = expireAt;
+        }
+
+        Object get() {
+            return reference == null ? value : reference.get();
+        }
+
+        boolean isExpired(long now) {
+            return expireAt != 0 && now - expireAt >= 0;
+        }
+
+    }
+
+    /**
+     * 软引用的组件，被GC回收后通过它找到缓存的位置
+     */
+    private static class ComponentReference extends SoftReference<Object> {
+
+        private final Object key;
+
+        ComponentReference(Object key, Object component, ReferenceQueue<Object> queue) {
+            super(component,queue);
+            this.key = key;
+        }
+
+    }
+
+    private volatile int maximumSize = 64;
+
+    /**
+     * 组件的类型或者名称 - 组件，按照访问的顺序排列，最久没有使用的在前面。
+     * 读写的时候需要持有它的锁。
+     */
+    private final LinkedHashMap<Object,Entry> entries = new LinkedHashMap<>(16,0.75f,true);
+
+    /**
+     * 被GC回收的软引用
+     */
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    /**
+     * 组件的类型或者名称 - 创建组件时使用的锁，同一个组件只会被一个线程重新创建
+     */
+    private final Map<Object,Object> creationLocks = new ConcurrentHashMap<>();
+
+    private final LongAdder evictedCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * 设置缓存的容量，超过容量的时候移出最久没有使用的组件。
+     * @param maximumSize 组件的最大数量
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("缓存的容量必须大于0。");
+        }
+        this.maximumSize = maximumSize;
+        List<Entry> evicted;
+        synchronized (entries) {
+            evicted = evict(System.nanoTime());
+        }
+        destroy(evicted);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return 缓存中的组件数量
+     */
+    public int size() {
+        List<Entry> evicted;
+        int size;
+        synchronized (entries) {
+            evicted = evict(System.nanoTime());
+            size = entries.size();
+        }
+        destroy(evicted);
+        return size;
+    }
+
+    /**
+     * @return 被移出缓存的组件数量，包括被GC回收的组件
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /**
+     * 移出并销毁组件，下一次使用的时候重新创建。
+     * @param clazz 组件类型
+     */
+    public void invalidate(Class clazz) {
+        remove(clazz);
+    }
+
+    /**
+     * 移出并销毁具名的组件，下一次使用的时候重新创建。
+     * @param name 组件名称
+     */
+    public void invalidate(String name) {
+        remove(name);
+    }
+
+    /**
+     * 移出并销毁全部组件
+     */
+    public void invalidateAll() {
+        List<Entry> evicted;
+        synchronized (entries) {
+            evicted = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        destroy(evicted);
+    }
+
+    private void remove(Object key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.remove(key);
+        }
+        if (entry != null) {
+            destroy(Collections.singletonList(entry));
+        }
+    }
+
+    @Override
+    protected Binding bind(Object key, Class clazz) {
+        return new Binding(key,clazz);
+    }
+
+    /**
+     * 读取缓存中的组件，同时移出过期的组件
+     * @param key 组件的类型或者名称
+     * @return 组件，不在缓存中的时候返回空
+     */
+    private Object current(Object key) {
+        List<Entry> evicted;
+        Object component = null;
+        synchronized (entries) {
+            evicted = evict(System.nanoTime());
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                component = entry.get();
+            }
+        }
+        destroy(evicted);
+        return component;
+    }
+
+    /**
+     * 获取缓存中的组件，不在缓存中的时候通过依赖环境创建，
+     * 创建的组件在初始化完成之后才会放入缓存。
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @return 组件
+     */
+    private Object obtain(Object key, Class clazz) {
+        Object component = current(key);
+        if (component != null) {
+            return component;
+        }
+        synchronized (creationLocks.computeIfAbsent(key,k -> new Object())) {
+            component = current(key);
+            if (component != null) {
+                return component;
+            }
+            component = create(key,clazz);
+            store(key,clazz,component);
+        }
+        return component;
+    }
+
+    /**
+     * 开始一次调用，组件不在缓存中的时候在这里创建
+     * @param binding 组件的绑定
+     * @return 缓存中的组件
+     */
+    @Override
+    protected Object acquire(Binding binding) {
+        Object key = binding.key;
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("缓存已经关闭：" + key);
+            }
+            List<Entry> evicted;
+            Entry entry;
+            synchronized (entries) {
+                evicted = evict(System.nanoTime());
+                entry = entries.get(key);
+                if (entry != null && entry.get() != null) {
+                    entry.calls.incrementAndGet();
+                } else {
+                    entry = null;
+                }
+            }
+            destroy(evicted);
+            if (entry != null) {
+                return entry;
+            }
+            // 创建的组件会放入缓存，下一次循环的时候开始调用
+            obtain(key,binding.clazz);
+        }
+    }
+
+    @Override
+    protected Object targetOf(Binding binding, Object acquired) {
+        Object target = ((Entry) acquired).get();
+        if (target == null) {
+            // 开始调用之前被GC回收了
+            target = obtain(binding.key,binding.clazz);
+        }
+        return target;
+    }
+
+    /**
+     * 结束一次调用，被移出的组件在最后一次调用结束后销毁
+     */
+    @Override
+    protected void release(Binding binding, Object acquired) {
+        Entry entry = (Entry) acquired;
+        if (entry.calls.decrementAndGet() == 0 && entry.retired) {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * 无法代理的时候直接返回缓存中的组件
+     */
+    @Override
+    protected Object unproxied(Object key, Class clazz) {
+        return obtain(key,clazz);
+    }
+
+    @Override
+    public <T> T put(String name, Class clazz, T component) {
+        Object key = keyOf(name,clazz);
+        if (!isCreating(key)) {
+            store(key,clazz,component);
+        }
+        // 为缓存创建的组件还没有初始化，由obtain放入缓存
+        return component;
+    }
+
+    /**
+     * 放入缓存，替换已有的组件
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @param component 组件
+     */
+    private void store(Object key, Class clazz, Object component) {
+        Cached config = (Cached) clazz.getAnnotation(Cached.class);
+        if (config == null) {
+            // 通过其他注解使用本Scope，使用默认配置
+            config = DefaultConfig.class.getAnnotation(Cached.class);
+        }
+        long now = System.nanoTime();
+        long expireAt = 0;
+        if (config.timeToLive() > 0) {
+            expireAt = now + TimeUnit.MILLISECONDS.toNanos(config.timeToLive());
+            if (expireAt == 0) {
+                expireAt = 1;
+            }
+        }
+        Entry entry = config.soft() ?
+                new Entry(clazz,null,new ComponentReference(key,component,collected),expireAt) :
+                new Entry(clazz,component,null,expireAt);
+
+        List<Entry> evicted = null;
+        Entry replaced = null;
+        boolean rejected;
+        synchronized (entries) {
+            rejected = closed;
+            if (!rejected) {
+                replaced = entries.put(key,entry);
+                evicted = evict(now);
+            }
+        }
+        if (rejected) {
+            // 关闭之后创建的组件直接销毁
+            destroyComponent(clazz,component);
+            throw new IllegalStateException("缓存已经关闭：" + key);
+        }
+        if (replaced != null && replaced.get() != component) {
+            destroy(Collections.singletonList(replaced));
+        }
+        destroy(evicted);
+    }
+
+    @Cached
+    private static class DefaultConfig {
+    }
+
+    /**
+     * 移出被GC回收，过期和超过容量的组件，需要持有entries的锁
+     * @param now 当前时间（nanoTime）
+     * @return 需要销毁的组件
+     */
+    private List<Entry> evict(long now) {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            Object key = ((ComponentReference) reference).key;
+            Entry entry = entries.get(key);
+            if (entry != null && entry.reference == reference) {
+                entries.remove(key);
+                evictedCount.increment();
+            }
+        }
+        List<Entry> evicted = null;
+        int overflow = entries.size() - maximumSize;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (overflow > 0 || entry.isExpired(now)) {
+                iterator.remove();
+                overflow --;
+                if (evicted == null) {
+                    evicted = new ArrayList<>();
+                }
+                evicted.add(entry);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 在锁以外销毁移出的组件，正在被调用的组件在调用结束后销毁
+     * @param evicted 移出的组件
+     */
+    private void destroy(List<Entry> evicted) {
+        if (evicted == null) {
+            return;
+        }
+        RuntimeException failure = null;
+        for (Entry entry : evicted) {
+            evictedCount.increment();
+            entry.retired = true;
+            if (entry.calls.get() > 0) {
+                continue;
+            }
+            try {
+                destroy(entry);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void destroy(Entry entry) {
+        if (!entry.destroyed.compareAndSet(false,true)) {
+            return;
+        }
+        Object component = entry.get();
+        if (component != null) {
+            destroyComponent(entry.clazz,component);
+        }
+    }
+
+    /**
+     * 缓存中的全部组件
+     * @return 组件
+     */
+    @Override
+    public List<Object> getAllComponent() {
+        List<Object> result = new ArrayList<>();
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                Object component = entry.get();
+                if (component != null) {
+                    result.add(component);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 关闭缓存，移出全部组件，正在被调用的组件在调用结束后销毁。
+     * @return 空的列表，组件由缓存自己销毁
+     */
+    @Override
+    public List<Object> close() {
+        closed = true;
+        invalidateAll();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Class getScopeType() {
+        return Cached.class;
+    }
+
+}
@@ -0,0 +1,454 @@
+package org.swdc.dependency.scopes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 组件池。
+ *
+ * 池中保存已经完成注入和初始化的组件，借出的组件在归还之前不会被其他调用者使用。
+ * 没有空闲组件并且没有达到数量上限的时候创建新的组件，否则等待其他调用者归还。
+ * 空闲超时的组件在借出和归还的时候被移出并销毁，不需要额外的线程。
+ * 关闭之后空闲的组件立即销毁，借出的组件在归还的时候销毁，不能再借出组件。
+ * 借出和归还的时候销毁组件失败只会记录日志，不会影响借出和归还本身。
+ *
+ * @param <T> 组件类型
+ */
+public class ComponentPool<T> {
+
+    /**
+     * 空闲的组件和它被归还的时间
+     */
+    private static class Idle<T> {
+
+        private final T instance;
+
+        private final long since;
+
+        Idle(T instance, long since) {
+            this.instance = instance;
+            this.since = since;
+        }
+
+    }
+
+    /**
+     * 借出的组件，关闭的时候归还，适合在try-with-resources中使用。
+     * @param <T> 组件类型
+     */
+    public static class Lease<T> implements AutoCloseable {
+
+        private final ComponentPool<T> pool;
+
+        private T instance;
+
+        Lease(ComponentPool<T> pool, T instance) {
+            this.pool = pool;
+            this.instance = instance;
+        }
+
+        public T get() {
+            if (instance == null) {
+                throw new IllegalStateException("组件已经归还。");
+            }
+            return instance;
+        }
+
+        @Override
+        public void close() {
+            if (instance != null) {
+                pool.release(instance);
+                instance = null;
+            }
+        }
+
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ComponentPool.class);
+
+    private final String name;
+
+    private final Supplier<T> creator;
+
+    private final Consumer<T> destroyer;
+
+    private final int size;
+
+    private final long idleTimeout;
+
+    private final long maxWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    /**
+     * 空闲的组件，最近归还的在前面
+     */
+    private final ArrayDeque<Idle<T>> idle = new ArrayDeque<>();
+
+    /**
+     * 池创建的全部组件，包括借出的
+     */
+    private final Set<T> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * 已经创建和正在创建的组件数量
+     */
+    private int total;
+
+    /**
+     * 池是否已经关闭，需要持有锁
+     */
+    private boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final LongAdder evictedCount = new LongAdder();
+
+    /**
+     * @param name 池的名称，用于异常信息
+     * @param creator 创建组件
+     * @param destroyer 销毁移出池的组件
+     * @param size 组件的最大数量
+     * @param idleTimeout 空闲超时（毫秒），0表示不移除空闲的组件
+     * @param maxWait 等待归还的最长时间（毫秒），0表示一直等待
+     */
+    public ComponentPool(String name, Supplier<T> creator, Consumer<T> destroyer, int size, long idleTimeout, long maxWait) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("池的容量必须大于0：" + name);
+        }
+        this.name = name;
+        this.creator = creator;
+        this.destroyer = destroyer;
+        this.size = size;
+        this.idleTimeout = idleTimeout;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * 借出一个组件，使用完毕后需要通过release归还。
+     * @return 组件
+     */
+    public T borrow() {
+        long start = System.nanoTime();
+        boolean waited = false;
+        List<T> evicted = null;
+        Idle<T> next = null;
+        lock.lock();
+        try {
+            evicted = evictIdle();
+            while (true) {
+                checkOpen();
+                next = idle.pollFirst();
+                if (next != null) {
+                    break;
+                }
+                if (total < size) {
+                    total ++;
+                    break;
+                }
+                waited = true;
+                if (maxWait <= 0) {
+                    available.await();
+                } else {
+                    long remains = TimeUnit.MILLISECONDS.toNanos(maxWait) - (System.nanoTime() - start);
+                    if (remains <= 0) {
+                        recordWait(start);
+                        throw new RuntimeException("等待池中的组件超时：" + name);
+                    }
+                    available.awaitNanos(remains);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待池中的组件的时候被中断：" + name,e);
+        } finally {
+            lock.unlock();
+            // 移出的组件销毁失败不会影响借出的结果
+            destroyQuietly(evicted);
+        }
+        if (next != null) {
+            record(start,waited);
+            return next.instance;
+        }
+
+        // 在锁以外创建组件，创建的过程可能很慢
+        T instance = null;
+        boolean discard = false;
+        try {
+            instance = creator.get();
+        } finally {
+            lock.lock();
+            try {
+                if (instance == null || closed) {
+                    // 创建的过程中池被关闭了，新的组件不再放入池中
+                    discard = instance != null;
+                    total --;
+                    available.signal();
+                } else {
+                    instances.add(instance);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (discard) {
+            destroyQuietly(List.of(instance));
+            throw new IllegalStateException("组件池已经关闭：" + name);
+        }
+        record(start,waited);
+        return instance;
+    }
+
+    /**
+     * 归还借出的组件
+     * @param instance 组件
+     */
+    public void release(T instance) {
+        List<T> evicted = null;
+        lock.lock();
+        try {
+            if (!instances.contains(instance)) {
+                throw new IllegalArgumentException("组件不属于这个池：" + name);
+            }
+            if (closed) {
+                // 关闭之后归还的组件直接销毁
+                instances.remove(instance);
+                total --;
+                evicted = List.of(instance);
+                return;
+            }
+            idle.offerFirst(new Idle<>(instance,System.nanoTime()));
+            available.signal();
+            evicted = evictIdle();
+        } finally {
+            lock.unlock();
+            destroyQuietly(evicted);
+        }
+    }
+
+    /**
+     * 借出一个组件，关闭返回的Lease的时候归还。
+     * @return 借出的组件
+     */
+    public Lease<T> lease() {
+        return new Lease<>(this,borrow());
+    }
+
+    /**
+     * 关闭组件池，销毁空闲的组件，正在等待的调用者会收到异常。
+     * 借出的组件在归还的时候销毁。
+     */
+    public void close() {
+        List<T> closing = new ArrayList<>();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Idle<T> item : idle) {
+                instances.remove(item.instance);
+                closing.add(item.instance);
+                total --;
+            }
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        destroy(closing);
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("组件池已经关闭：" + name);
+        }
+    }
+
+    /**
+     * 移出空闲超时的组件，需要持有锁
+     * @return 需要销毁的组件
+     */
+    private List<T> evictIdle() {
+        if (idleTimeout <= 0 || idle.isEmpty()) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        List<T> evicted = null;
+        // 最久没有使用的组件在最后面
+        Iterator<Idle<T>> iterator = idle.descendingIterator();
+        while (iterator.hasNext()) {
+            Idle<T> item = iterator.next();
+            if (now - item.since < timeout) {
+                break;
+            }
+            iterator.remove();
+            instances.remove(item.instance);
+            total --;
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(item.instance);
+            evictedCount.increment();
+        }
+        return evicted;
+    }
+
+    private void destroy(List<T> removed) {
+        if (removed == null || destroyer == null) {
+            return;
+        }
+        RuntimeException failure = null;
+        for (T instance : removed) {
+            try {
+                destroyer.accept(instance);
+            } catch (RuntimeException e) {
+                // 继续销毁其他的组件
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 销毁借出和归还的时候移出的组件，失败的时候只记录日志
+     */
+    private void destroyQuietly(List<T> removed) {
+        try {
+            destroy(removed);
+        } catch (RuntimeException e) {
+            logger.warn("无法销毁池中的组件：" + name,e);
+        }
+    }
+
+    private void record(long start, boolean waited) {
+        borrowCount.increment();
+        if (waited) {
+            recordWait(start);
+        }
+    }
+
+    private void recordWait(long start) {
+        long elapsed = System.nanoTime() - start;
+        waitCount.increment();
+        waitNanos.add(elapsed);
+        maxWaitNanos.accumulateAndGet(elapsed,Math::max);
+    }
+
+    /**
+     * 池创建的全部组件，包括借出的
+     * @return 组件
+     */
+    public List<T> getInstances() {
+        lock.lock();
+        try {
+            return new ArrayList<>(instances);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return 空闲的组件数量
+     */
+    public int getIdle() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 借出的组件数量
+     */
+    public int getActive() {
+        lock.lock();
+        try {
+            return instances.size() - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 借出的总次数
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return 需要等待归还的借出次数
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    /**
+     * @return 等待归还的总时间
+     */
+    public Duration getTotalWaitTime() {
+        return Duration.ofNanos(waitNanos.sum());
+    }
+
+    /**
+     * @return 等待归还的最长时间
+     */
+    public Duration getMaxWaitTime() {
+        return Duration.ofNanos(maxWaitNanos.get());
+    }
+
+    /**
+     * @return 空闲超时被移除的组件数量
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+}
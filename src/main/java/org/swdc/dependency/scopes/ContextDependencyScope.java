@@ -0,0 +1,123 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.annotations.ContextScoped;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 上下文Scope的实现。
+ *
+ * 组件保存在当前绑定的ScopeContext中，而不是线程中。
+ * 获取组件的时候返回代理对象，代理对象在每次调用方法的时候使用当前绑定的上下文中的组件，
+ * 因此可以注入到单例等生命周期更长的组件中，没有绑定上下文的时候调用方法会抛出异常。
+ *
+ * 无法代理的类型在没有绑定ScopeContext的时候无法获取。
+ * 同一个上下文中的组件只在第一次获取的时候创建，不需要跨上下文的创建锁，
+ * 多个线程在同一个上下文中同时第一次获取的时候，只会保留先放入的组件，其他的会在上下文关闭的时候销毁。
+ */
+public class ContextDependencyScope extends ProxiedDependencyScope<ProxiedDependencyScope.Binding> {
+
+    /**
+     * 当前线程正在创建的组件实现的接口或抽象类，创建完成之后和组件一起放入上下文
+     */
+    private final ThreadLocal<Class> creatingMultiple = new ThreadLocal<>();
+
+    /**
+     * 打开一个新的上下文，使用完毕后需要关闭。
+     * @return 上下文
+     */
+    public ScopeContext open() {
+        return new ScopeContext(this);
+    }
+
+    private ScopeContext current() {
+        return ScopeContext.current(this);
+    }
+
+    @Override
+    public <T> T put(String name, Class clazz, Class multiple, T component) {
+        if (isCreating(keyOf(name,clazz))) {
+            // 为上下文创建的组件还没有初始化，由resolve放入上下文
+            creatingMultiple.set(multiple);
+            return component;
+        }
+        return requireCurrent().put(name,clazz,multiple,component);
+    }
+
+    @Override
+    public <T> T put(String name, Class clazz, T component) {
+        return put(name,clazz,null,component);
+    }
+
+    private ScopeContext requireCurrent() {
+        ScopeContext context = current();
+        if (context == null) {
+            throw new IllegalStateException("没有绑定ScopeContext，请在ScopeContext的run或call中使用上下文组件。");
+        }
+        return context;
+    }
+
+    private static Object find(ScopeContext context, Object key) {
+        return key instanceof String ? context.getByName((String) key) : context.getByClass((Class) key);
+    }
+
+    @Override
+    protected Binding bind(Object key, Class clazz) {
+        return new Binding(key,clazz);
+    }
+
+    @Override
+    protected Object acquire(Binding binding) {
+        return resolve(binding.key,binding.clazz);
+    }
+
+    /**
+     * 获取当前上下文中的组件，没有创建的时候在这里创建，
+     * 创建的组件在初始化完成之后才会放入上下文。
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @return 组件，同时创建的时候返回先放入上下文的组件
+     */
+    private Object resolve(Object key, Class clazz) {
+        ScopeContext current = requireCurrent();
+        Object instance = find(current,key);
+        if (instance != null) {
+            return instance;
+        }
+        Class multiple;
+        try {
+            instance = create(key,clazz);
+            multiple = creatingMultiple.get();
+        } finally {
+            creatingMultiple.remove();
+        }
+        return current.put(key instanceof String ? (String) key : null,clazz,multiple,instance);
+    }
+
+    @Override
+    public <T> List<T> getByAbstract(Class<T> parent) {
+        ScopeContext context = current();
+        return context == null ? Collections.emptyList() : context.getByAbstract(parent);
+    }
+
+    /**
+     * 当前上下文中的全部组件
+     * @return 组件
+     */
+    @Override
+    public List<Object> getAllComponent() {
+        ScopeContext context = current();
+        return context == null ? Collections.emptyList() : context.getAllComponent();
+    }
+
+    void destroy(Class clazz, Object component) {
+        destroyComponent(clazz,component);
+    }
+
+    @Override
+    public Class getScopeType() {
+        return ContextScoped.class;
+    }
+
+}
@@ -0,0 +1,166 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.annotations.Pooled;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 池化组件的Scope。
+ *
+ * 获取组件的时候返回代理对象，代理对象的每一次方法调用都会从池中借出组件，
+ * 调用结束后归还。池中的组件由依赖环境创建，和其他组件一样完成注入和初始化。
+ * 无法代理的类型每次获取都会创建新的组件，这种组件请使用borrow显式的借出。
+ *
+ * 依赖环境关闭的时候关闭全部的池，之后代理对象的方法调用和借出都会失败。
+ */
+public class PooledDependencyScope extends ProxiedDependencyScope<PooledDependencyScope.PoolBinding> {
+
+    /**
+     * 组件和它的池
+     */
+    static class PoolBinding extends Binding {
+
+        private final ComponentPool pool;
+
+        PoolBinding(Class clazz, ComponentPool pool) {
+            super(clazz,clazz);
+            this.pool = pool;
+        }
+
+    }
+
+    /**
+     * 组件类型 - 组件池
+     */
+    private final Map<Class,ComponentPool> pools = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * 借出一个组件，关闭返回的Lease的时候归还。
+     * @param clazz 组件类型
+     * @param <T> 组件类型
+     * @return 借出的组件
+     */
+    public <T> ComponentPool.Lease<T> borrow(Class<T> clazz) {
+        return getPool(clazz).lease();
+    }
+
+    /**
+     * 获取组件的池，可以读取池的使用情况。
+     * @param clazz 组件类型
+     * @param <T> 组件类型
+     * @return 组件池
+     */
+    public <T> ComponentPool<T> getPool(Class<T> clazz) {
+        ComponentPool pool = pools.computeIfAbsent(clazz,this::createPool);
+        if (closed) {
+            // 在关闭的过程中创建的池
+            pool.close();
+        }
+        return pool;
+    }
+
+    private ComponentPool createPool(Class clazz) {
+        Pooled config = (Pooled) clazz.getAnnotation(Pooled.class);
+        if (config == null) {
+            // 通过其他注解使用本Scope，使用默认配置
+            config = DefaultConfig.class.getAnnotation(Pooled.class);
+        }
+        return new ComponentPool<>(clazz.getName(),() -> create(clazz,clazz),instance -> destroyComponent(clazz,instance),
+                config.size(),config.idleTimeout(),config.maxWait());
+    }
+
+    @Pooled
+    private static class DefaultConfig {
+    }
+
+    @Override
+    protected PoolBinding bind(Object key, Class clazz) {
+        return new PoolBinding(clazz,getPool(clazz));
+    }
+
+    /**
+     * 每次调用借出一个组件
+     */
+    @Override
+    protected Object acquire(PoolBinding binding) {
+        return binding.pool.borrow();
+    }
+
+    @Override
+    protected void release(PoolBinding binding, Object acquired) {
+        binding.pool.release(acquired);
+    }
+
+    /**
+     * 返回空的时候，依赖环境会创建新的组件
+     */
+    @Override
+    protected Object unproxied(Object key, Class clazz) {
+        return null;
+    }
+
+    /**
+     * 池按照组件类型管理，具名获取的时候返回空，由依赖环境创建新的组件
+     */
+    @Override
+    public <T> T getByName(String name) {
+        return null;
+    }
+
+    /**
+     * 池中的全部组件，包括借出的
+     * @return 组件
+     */
+    @Override
+    public List<Object> getAllComponent() {
+        return pools.values().stream()
+                .map(pool -> (List<Object>) pool.getInstances())
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 关闭全部的池，空闲的组件立即销毁，借出的组件在归还的时候销毁。
+     * @return 池中的组件由池销毁，这里返回空
+     */
+    @Override
+    public List<Object> close() {
+        closed = true;
+        RuntimeException failure = null;
+        for (ComponentPool pool : pools.values()) {
+            try {
+                pool.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Class getScopeType() {
+        return Pooled.class;
+    }
+
+    /**
+     * 组件由池管理，这里不保存组件
+     */
+    @Override
+    public <T> T put(String name, Class clazz, T component) {
+        return component;
+    }
+
+}
@@ -28,6 +28,11 @@ public class PrototypeDependencyScope extends AbstractDependencyScope {
         return Collections.emptyList();
     }
 
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
     @Override
     public Class getScopeType() {
         return Prototype.class;
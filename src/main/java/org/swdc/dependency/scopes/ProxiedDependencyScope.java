@@ -0,0 +1,300 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.AbstractDependencyScope;
+import org.swdc.dependency.DependencyFactory;
+import org.swdc.dependency.registry.ComponentInfo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 通过代理对象提供组件的Scope。
+ *
+ * 获取组件的时候返回代理对象，代理对象的每一次方法调用都通过acquire选择处理调用的组件，
+ * 调用结束后通过release归还，子类在这里决定组件的创建，保存和销毁。
+ * 具名组件的类型通过依赖环境的组件信息查找，第一次获取的时候也会返回代理对象。
+ *
+ * 无法代理的类型（final类，没有无参数构造方法的类）通过unproxied直接返回组件，
+ * 代理类的方法在创建代理对象的时候设置为可以访问，调用的时候不再检查。
+ *
+ * @param <B> 组件的绑定，保存一个组件在Scope中的状态
+ */
+public abstract class ProxiedDependencyScope<B extends ProxiedDependencyScope.Binding> extends AbstractDependencyScope {
+
+    /**
+     * 组件在Scope中的绑定，子类通过继承保存组件的状态
+     */
+    protected static class Binding {
+
+        /**
+         * 组件的类型或者名称
+         */
+        protected final Object key;
+
+        protected final Class clazz;
+
+        protected Binding(Object key, Class clazz) {
+            this.key = key;
+            this.clazz = clazz;
+        }
+
+    }
+
+    /**
+     * 组件的类型或者名称 - 代理对象
+     */
+    private final Map<Object,Object> proxies = new ConcurrentHashMap<>();
+
+    /**
+     * 具名组件的名称 - 组件类型
+     */
+    private final Map<String,Class> namedTypes = new ConcurrentHashMap<>();
+
+    /**
+     * 无法代理的组件类型
+     */
+    private final Set<Class> unproxyable = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 代理类的方法 - 已经设置为可以访问的方法
+     */
+    private final Map<Method,Method> accessible = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程正在为Scope创建的组件的类型或者名称
+     */
+    private final ThreadLocal<Object> creating = new ThreadLocal<>();
+
+    /**
+     * 获取组件的绑定，同一个组件应该返回同一个绑定
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @return 绑定
+     */
+    protected abstract B bind(Object key, Class clazz);
+
+    /**
+     * 开始一次调用，选择处理调用的组件，组件不存在的时候在这里创建
+     * @param binding 组件的绑定
+     * @return 本次调用使用的对象，结束的时候交给release
+     */
+    protected abstract Object acquire(B binding);
+
+    /**
+     * 本次调用的组件
+     * @param binding 组件的绑定
+     * @param acquired acquire返回的对象
+     * @return 组件，默认是acquire返回的对象
+     */
+    protected Object targetOf(B binding, Object acquired) {
+        return acquired;
+    }
+
+    /**
+     * 结束一次调用
+     * @param binding 组件的绑定
+     * @param acquired acquire返回的对象
+     */
+    protected void release(B binding, Object acquired) {
+    }
+
+    /**
+     * 无法代理的时候直接返回的组件，默认是本次选择的组件
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @return 组件，返回空的时候依赖环境会创建新的组件
+     */
+    protected Object unproxied(Object key, Class clazz) {
+        B binding = bind(key,clazz);
+        Object acquired = acquire(binding);
+        try {
+            return targetOf(binding,acquired);
+        } finally {
+            release(binding,acquired);
+        }
+    }
+
+    /**
+     * 通过依赖环境为Scope创建组件，创建的过程中获取这个组件的时候返回空，
+     * 这时依赖环境会创建新的组件。
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @return 组件
+     */
+    protected Object create(Object key, Class clazz) {
+        Object previous = creating.get();
+        creating.set(key);
+        try {
+            Object instance = key instanceof String ?
+                    context.getByName((String) key) :
+                    context.getByClass(clazz);
+            if (instance == null) {
+                throw new RuntimeException("无法创建组件：" + key);
+            }
+            return instance;
+        } finally {
+            if (previous == null) {
+                creating.remove();
+            } else {
+                creating.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 组件是否正在由当前线程通过create创建
+     * @param key 组件的类型或者名称
+     * @return 是否正在创建
+     */
+    protected boolean isCreating(Object key) {
+        return key.equals(creating.get());
+    }
+
+    /**
+     * 放入组件时使用的键，同时记录具名组件的类型
+     * @param name 组件名称，可以为空
+     * @param clazz 组件类型
+     * @return 具名组件返回名称，否则返回类型
+     */
+    protected Object keyOf(String name, Class clazz) {
+        if (name == null || name.equals(clazz.getName())) {
+            return clazz;
+        }
+        namedTypes.putIfAbsent(name,clazz);
+        return name;
+    }
+
+    /**
+     * 具名组件的类型，没有放入过的时候从依赖环境的组件信息中查找
+     * @param name 组件名称
+     * @return 组件类型，找不到的时候返回空
+     */
+    protected Class typeOf(String name) {
+        Class clazz = namedTypes.get(name);
+        if (clazz != null || !(context instanceof DependencyFactory)) {
+            return clazz;
+        }
+        ComponentInfo info = ((DependencyFactory) context).findInfo(name);
+        if (info == null) {
+            return null;
+        }
+        Class exists = namedTypes.putIfAbsent(name,info.getClazz());
+        return exists == null ? info.getClazz() : exists;
+    }
+
+    @Override
+    public <T> T getByClass(Class<T> clazz) {
+        return (T) lookup(clazz,clazz);
+    }
+
+    @Override
+    public <T> T getByName(String name) {
+        return (T) lookup(name,typeOf(name));
+    }
+
+    /**
+     * 获取组件的代理对象
+     * @param key 组件的类型或者名称
+     * @param clazz 组件类型
+     * @return 代理对象，无法代理的时候返回unproxied的结果
+     */
+    private Object lookup(Object key, Class clazz) {
+        if (clazz == null || isCreating(key)) {
+            // 返回空的时候，依赖环境会创建新的组件
+            return null;
+        }
+        if (unproxyable.contains(clazz) || !(context instanceof DependencyFactory)) {
+            return unproxied(key,clazz);
+        }
+        Object proxy = proxies.get(key);
+        if (proxy != null) {
+            return proxy;
+        }
+        proxy = ((DependencyFactory) context).createProxy(clazz,new Invocation(bind(key,clazz)));
+        if (proxy == null) {
+            unproxyable.add(clazz);
+            return unproxied(key,clazz);
+        }
+        prepareMethods(clazz);
+        Object exists = proxies.putIfAbsent(key,proxy);
+        return exists == null ? proxy : exists;
+    }
+
+    /**
+     * 把代理类会调用的方法设置为可以访问
+     * @param clazz 组件类型
+     */
+    private void prepareMethods(Class clazz) {
+        for (Method method : clazz.getMethods()) {
+            accessible(method);
+        }
+        for (Class type = clazz; type != null; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (!Modifier.isPrivate(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())) {
+                    accessible(method);
+                }
+            }
+        }
+    }
+
+    private Method accessible(Method method) {
+        Method prepared = accessible.get(method);
+        if (prepared != null) {
+            return prepared;
+        }
+        method.trySetAccessible();
+        prepared = accessible.putIfAbsent(method,method);
+        return prepared == null ? method : prepared;
+    }
+
+    /**
+     * 代理对象的方法调用，交给acquire选择的组件
+     */
+    private class Invocation implements InvocationHandler {
+
+        private final B binding;
+
+        Invocation(B binding) {
+            this.binding = binding;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object acquired = acquire(binding);
+            try {
+                return accessible(method).invoke(targetOf(binding,acquired),args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                release(binding,acquired);
+            }
+        }
+
+    }
+
+    @Override
+    public <T> T put(String name, Class clazz, Class multiple, T component) {
+        return put(name,clazz,component);
+    }
+
+    @Override
+    public <T> List<T> getByAbstract(Class<T> parent) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 组件由Scope自己管理，没有跨组件的创建锁
+     */
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+}
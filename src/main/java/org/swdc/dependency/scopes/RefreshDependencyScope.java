@@ -0,0 +1,248 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.annotations.RefreshScoped;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可以刷新的Scope。
+ *
+ * 获取组件的时候返回代理对象，代理对象的方法调用交给组件的当前版本处理。
+ * 刷新的时候在线程池中创建新的组件，然后原子的替换当前版本，调用者不需要等待。
+ * 每个版本记录正在进行的调用数量，被替换的版本在调用全部结束后执行PreDestroy方法。
+ */
+public class RefreshDependencyScope extends ProxiedDependencyScope<RefreshDependencyScope.Slot> {
+
+    /**
+     * 组件的一个版本
+     */
+    private static class Generation {
+
+        private final Object instance;
+
+        /**
+         * 正在进行的调用数量
+         */
+        private final AtomicInteger calls = new AtomicInteger();
+
+        /**
+         * 是否已经被替换
+         */
+        private volatile boolean retired;
+
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        /**
+         * 被替换并且销毁之后结束
+         */
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+        Generation(Object instance) {
+            this.instance = instance;
+        }
+
+    }
+
+    /**
+     * 一个组件和它的当前版本
+     */
+    static class Slot extends Binding {
+
+        private final AtomicReference<Generation> current = new AtomicReference<>();
+
+        Slot(Object key, Class clazz) {
+            super(key,clazz);
+        }
+
+    }
+
+    /**
+     * 组件的类型或者名称 - 组件
+     */
+    private final Map<Object,Slot> slots = new ConcurrentHashMap<>();
+
+    private volatile Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * 设置创建新版本组件的线程池，默认使用ForkJoinPool。
+     * @param refreshExecutor 线程池
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 刷新组件。
+     * @param clazz 组件类型
+     * @return 新的组件替换旧的组件，并且旧的组件销毁之后结束的Future
+     */
+    public CompletableFuture<Void> refresh(Class clazz) {
+        return refresh(slotOf(clazz,clazz));
+    }
+
+    /**
+     * 刷新具名的组件。
+     * @param name 组件名称
+     * @return 新的组件替换旧的组件，并且旧的组件销毁之后结束的Future
+     */
+    public CompletableFuture<Void> refresh(String name) {
+        Class clazz = typeOf(name);
+        if (clazz == null) {
+            throw new IllegalStateException("没有这个名称的组件，无法刷新：" + name);
+        }
+        return refresh(slotOf(name,clazz));
+    }
+
+    /**
+     * 刷新全部已经创建的组件，例如在配置变化的事件中使用。
+     * @return 全部组件刷新完成后结束的Future
+     */
+    public CompletableFuture<Void> refreshAll() {
+        List<CompletableFuture<Void>> refreshed = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            if (slot.current.get() != null) {
+                refreshed.add(refresh(slot));
+            }
+        }
+        return CompletableFuture.allOf(refreshed.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> refresh(Slot slot) {
+        return CompletableFuture.supplyAsync(() -> build(slot),refreshExecutor)
+                .thenCompose(instance -> {
+                    Generation replaced = slot.current.getAndSet(new Generation(instance));
+                    if (replaced == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    retire(slot,replaced);
+                    return replaced.drained;
+                });
+    }
+
+    private Slot slotOf(Object key, Class clazz) {
+        return slots.computeIfAbsent(key,k -> new Slot(k,clazz));
+    }
+
+    @Override
+    protected Slot bind(Object key, Class clazz) {
+        return slotOf(key,clazz);
+    }
+
+    /**
+     * 通过依赖环境创建组件的新版本
+     */
+    private Object build(Slot slot) {
+        return create(slot.key,slot.clazz);
+    }
+
+    /**
+     * 开始一次调用，组件还没有创建的时候在这里创建
+     * @param slot 组件
+     * @return 组件的当前版本
+     */
+    @Override
+    protected Object acquire(Slot slot) {
+        while (true) {
+            Generation generation = slot.current.get();
+            if (generation == null) {
+                generation = new Generation(build(slot));
+                if (!slot.current.compareAndSet(null,generation)) {
+                    // 其他线程已经创建或者刷新了组件
+                    retire(slot,generation);
+                    continue;
+                }
+            }
+            generation.calls.incrementAndGet();
+            if (slot.current.get() == generation) {
+                return generation;
+            }
+            // 在开始调用之前被替换了，使用新的版本
+            release(slot,generation);
+        }
+    }
+
+    /**
+     * 结束一次调用，被替换的版本在最后一次调用结束后销毁
+     */
+    @Override
+    protected void release(Slot slot, Object acquired) {
+        Generation generation = (Generation) acquired;
+        if (generation.calls.decrementAndGet() == 0 && generation.retired) {
+            destroy(slot,generation);
+        }
+    }
+
+    @Override
+    protected Object targetOf(Slot slot, Object acquired) {
+        return ((Generation) acquired).instance;
+    }
+
+    private void retire(Slot slot, Generation generation) {
+        generation.retired = true;
+        if (generation.calls.get() == 0) {
+            destroy(slot,generation);
+        }
+    }
+
+    private void destroy(Slot slot, Generation generation) {
+        if (!generation.destroyed.compareAndSet(false,true)) {
+            return;
+        }
+        try {
+            destroyComponent(slot.clazz,generation.instance);
+            generation.drained.complete(null);
+        } catch (RuntimeException e) {
+            // 调用者不处理旧组件的销毁，异常交给刷新的Future
+            generation.drained.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 刷新的时候创建的组件由Scope替换，
+     * 其他方式放入的组件直接成为当前版本。
+     */
+    @Override
+    public <T> T put(String name, Class clazz, T component) {
+        Object key = keyOf(name,clazz);
+        if (isCreating(key)) {
+            return component;
+        }
+        Slot slot = slotOf(key,clazz);
+        Generation replaced = slot.current.getAndSet(new Generation(component));
+        if (replaced != null && replaced.instance != component) {
+            retire(slot,replaced);
+        }
+        return component;
+    }
+
+    /**
+     * 全部组件的当前版本
+     * @return 组件
+     */
+    @Override
+    public List<Object> getAllComponent() {
+        List<Object> result = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            Generation generation = slot.current.get();
+            if (generation != null) {
+                result.add(generation.instance);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Class getScopeType() {
+        return RefreshScoped.class;
+    }
+
+}
@@ -0,0 +1,249 @@
+package org.swdc.dependency.scopes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 上下文Scope的上下文，例如一次请求或者一个批处理任务。
+ *
+ * 上下文中的组件保存在这个对象里面，不会保存在线程中，
+ * 通过run或者call绑定上下文之后才能获取上下文组件。
+ * JDK提供ScopedValue的时候使用ScopedValue绑定，绑定只在run和call的执行期间有效，
+ * 否则使用ThreadLocal，run和call结束后会恢复原来的值。
+ *
+ * 关闭上下文的时候，按照创建的反向顺序销毁上下文中的全部组件。
+ */
+public class ScopeContext implements AutoCloseable {
+
+    /**
+     * java.lang.ScopedValue&lt;ScopeContext&gt;，不可用的时候为空
+     */
+    private static final Object SCOPED_VALUE;
+
+    private static final MethodHandle WHERE;
+
+    private static final MethodHandle RUN;
+
+    private static final MethodHandle IS_BOUND;
+
+    private static final MethodHandle GET;
+
+    /**
+     * 没有ScopedValue的时候使用的绑定
+     */
+    private static final ThreadLocal<ScopeContext> BOUND = new ThreadLocal<>();
+
+    static {
+        Object scopedValue = null;
+        MethodHandle where = null;
+        MethodHandle run = null;
+        MethodHandle isBound = null;
+        MethodHandle get = null;
+        try {
+            Class type = Class.forName("java.lang.ScopedValue");
+            Class carrier = Class.forName("java.lang.ScopedValue$Carrier");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            scopedValue = lookup.findStatic(type,"newInstance",MethodType.methodType(type)).invoke();
+            where = lookup.findStatic(type,"where",MethodType.methodType(carrier,type,Object.class));
+            run = lookup.findVirtual(carrier,"run",MethodType.methodType(void.class,Runnable.class));
+            isBound = lookup.findVirtual(type,"isBound",MethodType.methodType(boolean.class));
+            get = lookup.findVirtual(type,"get",MethodType.methodType(Object.class));
+            // 预览版本的ScopedValue可能没有开启，这里试用一次
+            run.invoke(where.invoke(scopedValue,Boolean.TRUE),(Runnable) () -> {});
+        } catch (Throwable e) {
+            scopedValue = null;
+        }
+        SCOPED_VALUE = scopedValue;
+        WHERE = scopedValue == null ? null : where;
+        RUN = run;
+        IS_BOUND = isBound;
+        GET = get;
+    }
+
+    private final ContextDependencyScope scope;
+
+    private final Map<Class,Object> typedComponents = new ConcurrentHashMap<>();
+
+    private final Map<String,Object> namedComponents = new ConcurrentHashMap<>();
+
+    private final Map<Class,List<Object>> multipleComponents = new ConcurrentHashMap<>();
+
+    /**
+     * 按照放入的顺序保存的组件：{ 组件类型, 组件 }
+     */
+    private final Deque<Object[]> created = new ConcurrentLinkedDeque<>();
+
+    private volatile boolean closed;
+
+    ScopeContext(ContextDependencyScope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * 当前绑定的上下文
+     * @return 上下文，没有绑定的时候返回空
+     */
+    public static ScopeContext current() {
+        if (WHERE == null) {
+            return BOUND.get();
+        }
+        try {
+            if (!(boolean) IS_BOUND.invoke(SCOPED_VALUE)) {
+                return null;
+            }
+            return (ScopeContext) GET.invoke(SCOPED_VALUE);
+        } catch (Throwable e) {
+            throw new RuntimeException("无法读取绑定的上下文。",e);
+        }
+    }
+
+    static ScopeContext current(ContextDependencyScope scope) {
+        ScopeContext context = current();
+        if (context == null || context.scope != scope || context.closed) {
+            return null;
+        }
+        return context;
+    }
+
+    /**
+     * 在本上下文中执行任务
+     * @param task 任务
+     */
+    public void run(Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("上下文已经关闭。");
+        }
+        if (WHERE != null) {
+            try {
+                RUN.invoke(WHERE.invoke(SCOPED_VALUE,this),task);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+        ScopeContext previous = BOUND.get();
+        BOUND.set(this);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                BOUND.remove();
+            } else {
+                BOUND.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 在本上下文中执行任务
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 任务的结果
+     * @throws Exception 任务抛出的异常
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        Object[] result = new Object[1];
+        Exception[] failure = new Exception[1];
+        run(() -> {
+            try {
+                result[0] = task.call();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return (T) result[0];
+    }
+
+    <T> T put(String name, Class clazz, Class multiple, T component) {
+        if (closed) {
+            throw new IllegalStateException("上下文已经关闭。");
+        }
+        // 同时创建的组件都会在关闭的时候销毁，但是只有先放入的组件会被使用
+        created.add(new Object[] { clazz, component });
+        Object exists = null;
+        if (name == null || name.equals(clazz.getName())) {
+            exists = typedComponents.putIfAbsent(clazz,component);
+        } else {
+            exists = namedComponents.putIfAbsent(name,component);
+        }
+        if (exists != null) {
+            return (T) exists;
+        }
+        if (multiple != null) {
+            multipleComponents.computeIfAbsent(multiple,k -> new CopyOnWriteArrayList<>())
+                    .add(component);
+        }
+        return component;
+    }
+
+    <T> T getByClass(Class<T> clazz) {
+        return (T) typedComponents.get(clazz);
+    }
+
+    <T> T getByName(String name) {
+        return (T) namedComponents.get(name);
+    }
+
+    <T> List<T> getByAbstract(Class<T> parent) {
+        List<Object> components = multipleComponents.get(parent);
+        return components == null ? Collections.emptyList() : (List<T>) components;
+    }
+
+    List<Object> getAllComponent() {
+        List<Object> result = new ArrayList<>();
+        for (Object[] item : created) {
+            result.add(item[1]);
+        }
+        return result;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭上下文，按照创建的反向顺序销毁上下文中的全部组件。
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        RuntimeException failure = null;
+        Object[] item = null;
+        while ((item = created.pollLast()) != null) {
+            try {
+                scope.destroy((Class) item[0],item[1]);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        typedComponents.clear();
+        namedComponents.clear();
+        multipleComponents.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
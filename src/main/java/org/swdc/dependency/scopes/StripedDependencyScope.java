@@ -0,0 +1,166 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.annotations.Striped;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * 分段组件的Scope。
+ *
+ * 每个组件有固定数量的段，每一段是一个由依赖环境创建的实例，第一次被使用的时候创建。
+ * 获取组件的时候返回代理对象，代理对象根据当前线程的编号选择一段处理方法调用，
+ * 选择的过程不需要加锁，也不会创建新的对象。
+ */
+public class StripedDependencyScope extends ProxiedDependencyScope<StripedDependencyScope.Stripes> {
+
+    /**
+     * 一个组件的全部段
+     */
+    static class Stripes extends Binding {
+
+        private final AtomicReferenceArray<Object> instances;
+
+        private final int mask;
+
+        Stripes(Object key, Class clazz, int size) {
+            super(key,clazz);
+            this.instances = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+    }
+
+    /**
+     * 组件的类型或者名称 - 组件的段
+     */
+    private final Map<Object,Stripes> stripes = new ConcurrentHashMap<>();
+
+    /**
+     * 合并组件的全部段
+     * @param clazz 组件类型
+     * @param aggregator 合并的方法，参数是已经创建的段
+     * @param <T> 组件类型
+     * @param <R> 结果类型
+     * @return 合并的结果
+     */
+    public <T,R> R aggregate(Class<T> clazz, Function<List<T>,R> aggregator) {
+        return aggregator.apply(getStripes(clazz));
+    }
+
+    /**
+     * 已经创建的段，按照段的顺序排列
+     * @param clazz 组件类型
+     * @param <T> 组件类型
+     * @return 组件的实例
+     */
+    public <T> List<T> getStripes(Class<T> clazz) {
+        return (List<T>) created(stripes.get(clazz));
+    }
+
+    /**
+     * 已经创建的具名组件的段
+     * @param name 组件名称
+     * @param <T> 组件类型
+     * @return 组件的实例
+     */
+    public <T> List<T> getStripes(String name) {
+        return (List<T>) created(stripes.get(name));
+    }
+
+    private static List<Object> created(Stripes item) {
+        if (item == null) {
+            return Collections.emptyList();
+        }
+        List<Object> result = new ArrayList<>();
+        for (int idx = 0; idx < item.instances.length(); idx ++) {
+            Object instance = item.instances.get(idx);
+            if (instance != null) {
+                result.add(instance);
+            }
+        }
+        return result;
+    }
+
+    private Stripes stripesOf(Object key, Class clazz) {
+        return stripes.computeIfAbsent(key,k -> new Stripes(k,clazz,sizeOf(clazz)));
+    }
+
+    @Override
+    protected Stripes bind(Object key, Class clazz) {
+        return stripesOf(key,clazz);
+    }
+
+    private static int sizeOf(Class clazz) {
+        Striped config = (Striped) clazz.getAnnotation(Striped.class);
+        int size = config == null ? 0 : config.stripes();
+        if (size <= 0) {
+            size = Runtime.getRuntime().availableProcessors();
+        }
+        // 向上取整到2的幂，选择段的时候只需要取低位
+        return size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * 当前线程的哈希值，相邻编号的线程会分散到不同的段
+     */
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 获取当前线程对应的段，没有创建的时候在这里创建
+     * @param item 组件的段
+     * @return 组件
+     */
+    @Override
+    protected Object acquire(Stripes item) {
+        int index = probe() & item.mask;
+        Object instance = item.instances.get(index);
+        if (instance != null) {
+            return instance;
+        }
+        instance = create(item.key,item.clazz);
+        if (!item.instances.compareAndSet(index,null,instance)) {
+            // 其他线程已经创建了这一段
+            destroyComponent(item.clazz,instance);
+            instance = item.instances.get(index);
+        }
+        return instance;
+    }
+
+    /**
+     * 段由Scope创建和保存，这里只记录具名组件的类型
+     */
+    @Override
+    public <T> T put(String name, Class clazz, T component) {
+        keyOf(name,clazz);
+        return component;
+    }
+
+    /**
+     * 全部组件已经创建的段
+     * @return 组件
+     */
+    @Override
+    public List<Object> getAllComponent() {
+        List<Object> result = new ArrayList<>();
+        for (Stripes item : stripes.values()) {
+            result.addAll(created(item));
+        }
+        return result;
+    }
+
+    @Override
+    public Class getScopeType() {
+        return Striped.class;
+    }
+
+}
@@ -0,0 +1,287 @@
+package org.swdc.dependency.scopes;
+
+import org.swdc.dependency.AbstractDependencyScope;
+import org.swdc.dependency.annotations.ThreadScoped;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程Scope的实现。
+ *
+ * 每个组件类型分配一个连续的编号，
+ * 每个线程的组件保存在以编号为下标的数组中，获取组件只需要读取ThreadLocal和数组，
+ * 不需要加锁，也不会创建新的对象。
+ *
+ * 组件只属于创建它的线程，不需要跨线程的创建锁，因此isShared返回false。
+ * 每个线程的组件都会通过弱引用登记在Scope中，依赖环境关闭的时候销毁全部线程的组件，
+ * 已经结束并且被回收的线程的组件不会被销毁。
+ */
+public class ThreadDependencyScope extends AbstractDependencyScope {
+
+    /**
+     * 一个线程的组件
+     */
+    private static class Slots {
+
+        /**
+         * 组件，下标是组件的编号
+         */
+        private Object[] values = new Object[16];
+
+        /**
+         * 组件放入的顺序
+         */
+        private int[] order = new int[16];
+
+        private int count;
+
+        /**
+         * 登记在Scope中的弱引用，线程结束后被回收
+         */
+        private WeakReference<Slots> reference;
+
+    }
+
+    /**
+     * 下一个组件编号
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * 组件类型 - 编号
+     */
+    private final ClassValue<Integer> classIds = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return nextId.getAndIncrement();
+        }
+    };
+
+    /**
+     * 具名组件的名称 - 编号
+     */
+    private final Map<String,Integer> namedIds = new ConcurrentHashMap<>();
+
+    /**
+     * 接口或抽象类 - 多实现组件的编号
+     */
+    private final Map<Class,List<Integer>> multipleIds = new ConcurrentHashMap<>();
+
+    /**
+     * 编号 - 组件类型，销毁组件的时候使用
+     */
+    private final Map<Integer,Class> types = new ConcurrentHashMap<>();
+
+    /**
+     * 本线程的组件
+     */
+    private final ThreadLocal<Slots> components = ThreadLocal.withInitial(this::register);
+
+    /**
+     * 全部线程的组件
+     */
+    private final Set<Reference<Slots>> threads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已经被回收的线程的组件
+     */
+    private final ReferenceQueue<Slots> collected = new ReferenceQueue<>();
+
+    private Slots register() {
+        Reference<? extends Slots> reference = null;
+        while ((reference = collected.poll()) != null) {
+            threads.remove(reference);
+        }
+        Slots slots = new Slots();
+        slots.reference = new WeakReference<>(slots,collected);
+        threads.add(slots.reference);
+        return slots;
+    }
+
+    @Override
+    public <T> T put(String name, Class clazz, Class multiple, T component) {
+        int id = idOf(name,clazz);
+        store(id,clazz,component);
+        if (multiple != null) {
+            List<Integer> ids = multipleIds.computeIfAbsent(multiple,k -> new CopyOnWriteArrayList<>());
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return component;
+    }
+
+    @Override
+    public <T> T put(String name, Class clazz, T component) {
+        store(idOf(name,clazz),clazz,component);
+        return component;
+    }
+
+    private int idOf(String name, Class clazz) {
+        if (name == null || name.equals(clazz.getName())) {
+            return classIds.get(clazz);
+        }
+        return namedIds.computeIfAbsent(name,k -> nextId.getAndIncrement());
+    }
+
+    private void store(int id, Class clazz, Object component) {
+        types.putIfAbsent(id,clazz);
+        Slots slots = components.get();
+        // 关闭的时候其他线程会读取和清空组件
+        synchronized (slots) {
+            if (id >= slots.values.length) {
+                slots.values = Arrays.copyOf(slots.values,Math.max(id + 1,slots.values.length * 2));
+            }
+            if (slots.values[id] == null) {
+                if (slots.count == slots.order.length) {
+                    slots.order = Arrays.copyOf(slots.order,slots.count * 2);
+                }
+                slots.order[slots.count ++] = id;
+            }
+            slots.values[id] = component;
+        }
+    }
+
+    private Object get(int id) {
+        Object[] values = components.get().values;
+        return id < values.length ? values[id] : null;
+    }
+
+    @Override
+    public <T> T getByClass(Class<T> clazz) {
+        return (T) get(classIds.get(clazz));
+    }
+
+    @Override
+    public <T> T getByName(String name) {
+        Integer id = namedIds.get(name);
+        return id == null ? null : (T) get(id);
+    }
+
+    @Override
+    public <T> List<T> getByAbstract(Class<T> parent) {
+        List<Integer> ids = multipleIds.get(parent);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>();
+        for (Integer id : ids) {
+            Object component = get(id);
+            if (component != null) {
+                result.add((T) component);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 全部线程的组件
+     * @return 组件
+     */
+    @Override
+    public List<Object> getAllComponent() {
+        List<Object> result = new ArrayList<>();
+        for (Reference<Slots> reference : threads) {
+            Slots slots = reference.get();
+            if (slots == null) {
+                continue;
+            }
+            synchronized (slots) {
+                for (int idx = 0; idx < slots.count; idx ++) {
+                    result.add(slots.values[slots.order[idx]]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 退出本线程的Scope，按照创建的反向顺序销毁本线程的组件。
+     * 线程被线程池复用的时候，每个任务结束后都可以调用，之后获取组件会重新创建。
+     */
+    public void exit() {
+        Slots slots = components.get();
+        components.remove();
+        threads.remove(slots.reference);
+        RuntimeException failure = destroy(slots,null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 销毁全部线程的组件，其他线程的ThreadLocal中只会留下空的数组。
+     * @return 组件已经由Scope销毁，这里返回空
+     */
+    @Override
+    public List<Object> close() {
+        RuntimeException failure = null;
+        for (Reference<Slots> reference : threads) {
+            Slots slots = reference.get();
+            if (slots != null) {
+                failure = destroy(slots,failure);
+            }
+        }
+        threads.clear();
+        if (failure != null) {
+            throw failure;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 清空一个线程的组件，并且按照创建的反向顺序销毁它们
+     * @param slots 线程的组件
+     * @param failure 之前的异常
+     * @return 销毁过程中的异常
+     */
+    private RuntimeException destroy(Slots slots, RuntimeException failure) {
+        Object[] values;
+        int[] order;
+        int count;
+        synchronized (slots) {
+            values = slots.values;
+            order = slots.order;
+            count = slots.count;
+            slots.values = new Object[16];
+            slots.order = new int[16];
+            slots.count = 0;
+        }
+        // 依赖的组件先创建完成，先放入Scope
+        for (int idx = count - 1; idx >= 0; idx --) {
+            int id = order[idx];
+            try {
+                destroyComponent(types.get(id),values[id]);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        return failure;
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public Class getScopeType() {
+        return ThreadScoped.class;
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.swdc.dependency.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.stream.Stream;
+
+/**
+ * ClassPath的指纹。
+ *
+ * 根据ClassPath和ModulePath中每一个条目的路径，大小和修改时间计算，
+ * 任何一个jar或者class文件发生变化，指纹都会不同。
+ * 可以用来判断根据类生成的缓存是否已经过期。
+ */
+public class ClasspathFingerprint {
+
+    private static volatile String current;
+
+    /**
+     * 当前JVM的ClassPath指纹，只计算一次。
+     * @return 十六进制的指纹
+     */
+    public static String of() {
+        String fingerprint = current;
+        if (fingerprint == null) {
+            fingerprint = of(System.getProperty("java.class.path",""),
+                    System.getProperty("jdk.module.path",""));
+            current = fingerprint;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 计算指定路径的指纹
+     * @param paths 使用系统路径分隔符分隔的路径
+     * @return 十六进制的指纹
+     */
+    public static String of(String... paths) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String path : paths) {
+                if (path == null || path.isBlank()) {
+                    continue;
+                }
+                for (String entry : path.split(File.pathSeparator)) {
+                    if (entry.isBlank()) {
+                        continue;
+                    }
+                    update(digest,Paths.get(entry));
+                }
+            }
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest()) {
+                result.append(String.format("%02x",b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("无法计算ClassPath的指纹",e);
+        }
+    }
+
+    private static void update(MessageDigest digest, Path entry) {
+        digest.update(entry.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+        if (!Files.exists(entry)) {
+            return;
+        }
+        try {
+            if (Files.isDirectory(entry)) {
+                // 目录需要检查其中的全部文件
+                try (Stream<Path> files = Files.walk(entry)) {
+                    files.filter(Files::isRegularFile)
+                            .sorted()
+                            .forEach(file -> updateFile(digest,entry.relativize(file).toString(),file));
+                }
+            } else {
+                updateFile(digest,"",entry);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // 无法读取的条目只使用路径
+        }
+    }
+
+    private static void updateFile(MessageDigest digest, String name, Path file) {
+        try {
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            for (int idx = 0; idx < 8; idx ++) {
+                digest.update((byte) (size >>> (idx * 8)));
+                digest.update((byte) (modified >>> (idx * 8)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package org.swdc.dependency.utils;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfoList;
+import io.github.classgraph.ScanResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 包扫描工具。
+ *
+ * 只根据ClassGraph读取的类文件信息查找带有依赖注入注解的类，
+ * 没有相关注解的类（例如DTO和工具类）不会被加载。
+ *
+ * 设置了缓存目录的时候扫描结果会写入磁盘，ClassPath的指纹
+ * （jar和类文件的大小与修改时间）没有变化的时候直接使用缓存，不再扫描。
+ */
+public class PackageScanner {
+
+    private static final String ANNOTATIONS = "org.swdc.dependency.annotations.";
+
+    /**
+     * 标记在类上面，说明这个类是组件的注解
+     */
+    private static final List<String> COMPONENT_ANNOTATIONS = List.of(
+            "jakarta.inject.Scope",
+            "jakarta.inject.Singleton",
+            "jakarta.inject.Named",
+            "jakarta.annotation.ManagedBean",
+            ANNOTATIONS + "Dependency",
+            ANNOTATIONS + "ImplementBy",
+            ANNOTATIONS + "MultipleImplement",
+            ANNOTATIONS + "Interceptor",
+            ANNOTATIONS + "With"
+    );
+
+    /**
+     * 标记在字段，方法和构造方法上面的注入注解
+     */
+    private static final List<String> INJECT_ANNOTATIONS = List.of(
+            "jakarta.inject.Inject",
+            "jakarta.inject.Named",
+            "jakarta.annotation.Resource",
+            ANNOTATIONS + "Aware"
+    );
+
+    /**
+     * 只会标记在组件的方法上面的注解
+     */
+    private static final List<String> METHOD_ANNOTATIONS = List.of(
+            "jakarta.annotation.PostConstruct",
+            "jakarta.annotation.PreDestroy",
+            ANNOTATIONS + "Aspect",
+            ANNOTATIONS + "EventListener"
+    );
+
+    private static final String PROVIDER = "jakarta.inject.Provider";
+
+    private Path cacheFolder;
+
+    /**
+     * @param cacheFolder 扫描结果的缓存目录，为空的时候不缓存
+     */
+    public PackageScanner(Path cacheFolder) {
+        this.cacheFolder = cacheFolder;
+    }
+
+    /**
+     * 扫描包中的组件类
+     * @param packageName 包名
+     * @param scopeAnnotations 额外的Scope注解（已注册的Scope）
+     * @param classLoader 加载组件类的ClassLoader
+     * @return 组件类
+     */
+    public List<Class> scan(String packageName, Collection<Class> scopeAnnotations, ClassLoader classLoader) {
+        List<String> names = readCache(packageName, scopeAnnotations);
+        if (names == null) {
+            names = scanNames(packageName, scopeAnnotations);
+            writeCache(packageName, scopeAnnotations, names);
+        }
+        List<Class> result = new ArrayList<>();
+        for (String name : names) {
+            try {
+                result.add(Class.forName(name, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new RuntimeException("无法加载组件类：" + name, e);
+            }
+        }
+        return result;
+    }
+
+    private List<String> scanNames(String packageName, Collection<Class> scopeAnnotations) {
+        ClassGraph graph = new ClassGraph()
+                .enableClassInfo()
+                .enableAnnotationInfo()
+                .enableMethodInfo()
+                .enableFieldInfo()
+                .acceptPackages(packageName);
+        try (ScanResult result = graph.scan()) {
+            Set<String> annotations = new LinkedHashSet<>(COMPONENT_ANNOTATIONS);
+            for (Class scope : scopeAnnotations) {
+                annotations.add(scope.getName());
+            }
+            List<ClassInfoList> candidates = new ArrayList<>();
+            for (String annotation : annotations) {
+                // 包括使用元注解的类，例如被Scope标记的自定义注解
+                candidates.add(result.getClassesWithAnnotation(annotation));
+            }
+            for (String annotation : INJECT_ANNOTATIONS) {
+                candidates.add(result.getClassesWithMethodAnnotation(annotation));
+                candidates.add(result.getClassesWithFieldAnnotation(annotation));
+            }
+            for (String annotation : METHOD_ANNOTATIONS) {
+                candidates.add(result.getClassesWithMethodAnnotation(annotation));
+            }
+            candidates.add(result.getClassesImplementing(PROVIDER));
+
+            Set<String> names = new LinkedHashSet<>();
+            for (ClassInfoList list : candidates) {
+                names.addAll(list.getStandardClasses().getNames());
+            }
+            return new ArrayList<>(names);
+        }
+    }
+
+    /**
+     * 每个包一个缓存文件，第一行是ClassPath的指纹，第二行是额外的Scope注解，其余是组件类名
+     */
+    private Path cacheFile(String packageName) {
+        return cacheFolder.resolve(packageName + ".scan");
+    }
+
+    private static String cacheKey(Collection<Class> scopeAnnotations) {
+        List<String> names = new ArrayList<>();
+        for (Class scope : scopeAnnotations) {
+            names.add(scope.getName());
+        }
+        names.sort(String::compareTo);
+        return String.join(",", names);
+    }
+
+    private List<String> readCache(String packageName, Collection<Class> scopeAnnotations) {
+        if (cacheFolder == null) {
+            return null;
+        }
+        Path file = cacheFile(packageName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 2 || !lines.get(0).equals(ClasspathFingerprint.of())
+                    || !lines.get(1).equals(cacheKey(scopeAnnotations))) {
+                return null;
+            }
+            return lines.subList(2, lines.size());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeCache(String packageName, Collection<Class> scopeAnnotations, List<String> names) {
+        if (cacheFolder == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(ClasspathFingerprint.of());
+        lines.add(cacheKey(scopeAnnotations));
+        lines.addAll(names);
+        Path temp = null;
+        try {
+            Files.createDirectories(cacheFolder);
+            temp = Files.createTempFile(cacheFolder, packageName, ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, cacheFile(packageName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cacheFile(packageName), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // 缓存写入失败不影响扫描结果
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+}
@@ -1,9 +1,15 @@
 package org.swdc.dependency.utils;
 
+import jakarta.inject.Provider;
+
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 public class ReflectionUtil {
 
@@ -48,4 +54,50 @@ public class ReflectionUtil {
         return methodList;
     }
 
+    /**
+     * 获取Provider或Supplier注入点提供的类型
+     * @param type 注入点的泛型类型
+     * @return Provider&lt;T&gt;或者Supplier&lt;T&gt;的T，不是这两种类型的时候返回空
+     */
+    public static Class getProvidedType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType paramType = (ParameterizedType) type;
+        if (paramType.getRawType() != Provider.class && paramType.getRawType() != Supplier.class) {
+            return null;
+        }
+        Type provided = paramType.getActualTypeArguments()[0];
+        return provided instanceof Class ? (Class) provided : null;
+    }
+
+    /**
+     * 获取异步的工厂方法提供的类型
+     * @param type 工厂方法的泛型返回类型
+     * @return CompletableFuture&lt;T&gt;或者CompletionStage&lt;T&gt;的T，不是异步的返回值的时候返回空
+     */
+    public static Class getFutureType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType paramType = (ParameterizedType) type;
+        if (!(paramType.getRawType() instanceof Class) ||
+                !CompletionStage.class.isAssignableFrom((Class) paramType.getRawType())) {
+            return null;
+        }
+        Type provided = paramType.getActualTypeArguments()[0];
+        return provided instanceof Class ? (Class) provided : null;
+    }
+
+    /**
+     * 获取注入点真正依赖的类型，Provider和Supplier依赖它们提供的类型
+     * @param type 注入点的泛型类型
+     * @param rawType 注入点的类型
+     * @return 依赖的类型
+     */
+    public static Class getDependencyType(Type type, Class rawType) {
+        Class provided = getProvidedType(type);
+        return provided == null ? rawType : provided;
+    }
+
 }
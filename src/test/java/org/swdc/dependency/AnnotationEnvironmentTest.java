@@ -1,5 +1,6 @@
 package org.swdc.dependency;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -12,8 +13,43 @@ import org.swdc.dependency.annotations.*;
 import org.swdc.dependency.interceptor.AspectAt;
 import org.swdc.dependency.interceptor.InvocationPoint;
 import org.swdc.dependency.interceptor.ProcessPoint;
+import org.swdc.dependency.registry.ComponentInfo;
+import org.swdc.dependency.registry.InjectionPlan;
+import org.swdc.dependency.registry.InjectionPoint;
+import org.swdc.dependency.scopes.CachedDependencyScope;
+import org.swdc.dependency.scopes.ComponentPool;
+import org.swdc.dependency.scopes.ContextDependencyScope;
+import org.swdc.dependency.scopes.PooledDependencyScope;
+import org.swdc.dependency.scopes.RefreshDependencyScope;
+import org.swdc.dependency.scopes.ScopeContext;
+import org.swdc.dependency.scopes.StripedDependencyScope;
+import org.swdc.dependency.scopes.SingletonDependencyScope;
+import org.swdc.dependency.scopes.ThreadDependencyScope;
 import org.swdc.dependency.testpkg.TestAC1;
 import org.swdc.dependency.testpkg.TestACDep;
+import org.swdc.dependency.testpkg.TestC1;
+import org.swdc.dependency.testpkg.TestDTO;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class AnnotationEnvironmentTest {
 
@@ -50,107 +86,764 @@ public class AnnotationEnvironmentTest {
         }
     }
 
+    private static class PrivateFactoryClass {
+
+        private NoArgConstructorClass constructorClass;
+
+        @Inject
+        public PrivateFactoryClass(NoArgConstructorClass constructorClass) {
+            this.constructorClass = constructorClass;
+        }
+
+    }
+
     public static class SuperInjectionClass extends FieldAndSetterClass {
 
 
     }
 
 
-    public static class CircleTestClassA {
+    public static class CircleTestClassA {
+
+        public CircleTestClassA() {
+
+        }
+
+        @Inject
+        public void setTestClassB(CircleTestClassB testClassB) {
+
+        }
+
+    }
+
+    public static class CircleTestClassB {
+
+        @Inject
+        public CircleTestClassB(CircleTestClassA classA) {
+
+        }
+
+    }
+
+    @Prototype
+    public static class PrototypeClass {
+
+        public PrototypeClass() {
+
+        }
+
+    }
+
+    public static class TestProvider implements Provider<ConstructorTestClass> {
+
+        @Inject
+        private NoArgConstructorClass constructorClass;
+
+        @Override
+        public ConstructorTestClass get() {
+            return new ConstructorTestClass(constructorClass);
+        }
+
+    }
+
+    @Prototype
+    public static class CleanerTest {
+
+        @PreDestroy
+        public void cleaner() {
+            System.out.println("Cleaned");
+        }
+
+    }
+
+    @Dependency
+    public static class DeclareClass {
+
+        @Factory
+        public NoArgConstructorClass noArgConstructor() {
+            return new NoArgConstructorClass();
+        }
+
+        @Factory
+        public ConstructorTestClass testClass(NoArgConstructorClass noArgConstructorClass) {
+            return new ConstructorTestClass(noArgConstructorClass);
+        }
+
+    }
+
+    public static class AsyncResource {
+
+        protected boolean concurrent;
+
+        public AsyncResource(boolean concurrent) {
+            this.concurrent = concurrent;
+        }
+
+    }
+
+    public static class AsyncDataFile extends AsyncResource {
+
+        public AsyncDataFile(boolean concurrent) {
+            super(concurrent);
+        }
+
+    }
+
+    @Pooled(size = 2, maxWait = 100)
+    public static class PooledFormatter {
+
+        @Inject
+        private NoArgConstructorClass dependency;
+
+        public String format(Object value) {
+            return String.valueOf(value);
+        }
+
+    }
+
+    @Pooled(size = 2, maxWait = 100)
+    public static class PooledConnection {
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        public String query() {
+            return "result";
+        }
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    @ThreadScoped
+    public static class ThreadLocalBuffer {
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        @Inject
+        private NoArgConstructorClass dependency;
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    @ContextScoped
+    public static class RequestData {
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        /**
+         * 通过代理对象调用的时候返回当前上下文中的组件
+         */
+        public RequestData self() {
+            return this;
+        }
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * 初始化方法等待测试放行
+     */
+    @ContextScoped
+    public static class RequestReport {
+
+        private static CountDownLatch initializing = new CountDownLatch(1);
+
+        private static CountDownLatch release = new CountDownLatch(1);
+
+        private volatile boolean initialized;
+
+        public boolean isInitialized() {
+            return initialized;
+        }
+
+        @PostConstruct
+        public void init() throws InterruptedException {
+            initializing.countDown();
+            release.await(5,TimeUnit.SECONDS);
+            initialized = true;
+        }
+
+    }
+
+    @Cached
+    public static class CachedIndex {
+
+        private static AtomicInteger created = new AtomicInteger();
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        private int generation;
+
+        public CachedIndex() {
+            generation = created.incrementAndGet();
+        }
+
+        public int getGeneration() {
+            return generation;
+        }
+
+        public int search(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+            entered.countDown();
+            release.await();
+            return generation;
+        }
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * 初始化方法等待测试放行
+     */
+    @Cached
+    public static class CachedReport {
+
+        private static CountDownLatch initializing = new CountDownLatch(1);
+
+        private static CountDownLatch release = new CountDownLatch(1);
+
+        private volatile boolean initialized;
+
+        public boolean isInitialized() {
+            return initialized;
+        }
+
+        @PostConstruct
+        public void init() throws InterruptedException {
+            initializing.countDown();
+            release.await(5,TimeUnit.SECONDS);
+            initialized = true;
+        }
+
+    }
+
+    @Cached(timeToLive = 50)
+    public static class CachedTemplate {
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        public String render() {
+            return "template";
+        }
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    @RefreshScoped
+    public static class RoutingTable {
+
+        private static AtomicInteger created = new AtomicInteger();
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        private int version;
+
+        public RoutingTable() {
+            version = created.incrementAndGet();
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int route(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+            entered.countDown();
+            release.await();
+            return version;
+        }
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    public interface Route {
+
+        int getVersion();
+
+    }
+
+    @Dependency
+    public static class RouteDeclare {
+
+        private static AtomicInteger created = new AtomicInteger();
+
+        @Factory(scope = RefreshScoped.class)
+        public Route namedRoute() {
+            int version = created.incrementAndGet();
+            return () -> version;
+        }
+
+    }
+
+    @Striped(stripes = 3)
+    public static class StripedCounter {
+
+        private AtomicLong count = new AtomicLong();
+
+        public void increment() {
+            count.incrementAndGet();
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+    }
+
+    public interface OrderedPlugin {
+
+        AtomicInteger created = new AtomicInteger();
+
+    }
+
+    @Order(1)
+    @MultipleImplement(OrderedPlugin.class)
+    public static class LastPlugin implements OrderedPlugin {
+
+        public LastPlugin() {
+            created.incrementAndGet();
+        }
+
+    }
+
+    @MultipleImplement(OrderedPlugin.class)
+    public static class DefaultPlugin implements OrderedPlugin {
+
+        public DefaultPlugin() {
+            created.incrementAndGet();
+        }
+
+    }
+
+    @Order(-1)
+    @MultipleImplement(OrderedPlugin.class)
+    public static class FirstPlugin implements OrderedPlugin {
+
+        public FirstPlugin() {
+            created.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * 两个线程同时创建同一段的时候，初始化方法会等待对方也完成创建
+     */
+    @Striped(stripes = 1)
+    public static class StripedSession {
+
+        private static CountDownLatch initialized = new CountDownLatch(2);
+
+        private static AtomicInteger destroyed = new AtomicInteger();
+
+        public StripedSession self() {
+            return this;
+        }
+
+        @PostConstruct
+        public void init() throws InterruptedException {
+            initialized.countDown();
+            initialized.await(5,TimeUnit.SECONDS);
+        }
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.incrementAndGet();
+        }
+
+    }
+
+    public static class ReplacedReport {
+
+        @Inject
+        private NoArgConstructorClass source;
+
+    }
+
+    /**
+     * 替换通过类型解析的ReplacedReport
+     */
+    @Dependency
+    public static class ReplacedReportDeclare {
+
+        @Factory
+        public ReplacedReport replacedReport(NoArgConstructorClass source) {
+            return new ReplacedReport();
+        }
+
+    }
+
+    public interface StartupHook {
+
+    }
+
+    @MultipleImplement(StartupHook.class)
+    public static class FirstHook implements StartupHook {
+
+        @Inject
+        private HookRegistry registry;
+
+    }
+
+    @MultipleImplement(StartupHook.class)
+    public static class SecondHook implements StartupHook {
+
+        @Inject
+        private HookRegistry registry;
+
+    }
+
+    /**
+     * 在初始化方法中读取依赖自己的实现
+     */
+    public static class HookRegistry {
+
+        private static AnnotationEnvironment environment;
+
+        private List<StartupHook> hooks;
+
+        @PostConstruct
+        public void init() {
+            hooks = environment.getByAbstract(StartupHook.class);
+        }
+
+    }
+
+    public static class PluginConsumer {
+
+        @Inject
+        private List<OrderedPlugin> plugins;
+
+    }
+
+    public static class ShutdownRepository {
+
+        private static List<String> destroyed = new CopyOnWriteArrayList<>();
+
+        @PreDestroy
+        public void destroy() {
+            destroyed.add("repository");
+        }
+
+    }
+
+    public static class ShutdownService {
+
+        @Inject
+        private ShutdownRepository repository;
+
+        @PreDestroy
+        public void destroy() {
+            ShutdownRepository.destroyed.add("service");
+        }
+
+    }
+
+    public static class CloseRecorder {
+
+        private static final AtomicInteger destroyed = new AtomicInteger();
+
+        private static volatile Thread destroyThread;
+
+        @PreDestroy
+        public void destroy() throws InterruptedException {
+            destroyThread = Thread.currentThread();
+            destroyed.incrementAndGet();
+            Thread.sleep(100);
+        }
+
+    }
+
+    public static class SlowShutdown {
+
+        @PreDestroy
+        public void destroy() throws InterruptedException {
+            Thread.sleep(2000);
+        }
+
+    }
+
+    @Dependency
+    public static class AsyncDeclareClass {
+
+        private static CountDownLatch started = new CountDownLatch(2);
+
+        private static boolean awaitStarted() {
+            // 两个工厂方法的Future同时执行的时候才能通过
+            started.countDown();
+            try {
+                return started.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        @Factory
+        public CompletableFuture<AsyncResource> connection() {
+            return CompletableFuture.supplyAsync(() -> new AsyncResource(awaitStarted()));
+        }
+
+        @Factory
+        public CompletionStage<AsyncDataFile> dataFile() {
+            return CompletableFuture.supplyAsync(() -> new AsyncDataFile(awaitStarted()));
+        }
+
+    }
+
+    public static class PendingResource {
+
+    }
+
+    public static class FailedResource {
+
+    }
+
+    @Dependency
+    public static class PendingDeclareClass {
+
+        private static final CompletableFuture<PendingResource> pending = new CompletableFuture<>();
+
+        @Factory
+        public CompletableFuture<PendingResource> pendingResource() {
+            return pending;
+        }
+
+        @Factory
+        public CompletableFuture<FailedResource> failedResource() {
+            return CompletableFuture.failedFuture(new IllegalStateException("offline"));
+        }
+
+    }
+
+    public static class AsyncResourceConsumer {
+
+        @Inject
+        private AsyncDataFile dataFile;
+
+    }
+
+    @Interceptor
+    public static class Advice {
+
+        @Aspect(byNameRegex = "test*",at = AspectAt.BEFORE)
+        public void hello(InvocationPoint point) {
+            System.out.println("正在执行方法：" + point.getMethod().getName());
+        }
+
+        @Aspect(byNameRegex = "test*",at = AspectAt.AFTER)
+        public void helloExit(InvocationPoint point) {
+            System.out.println("方法已经结束：" + point.getMethod().getName());
+        }
+
+        @Aspect(byNameRegex = "test*",at = AspectAt.AROUND)
+        public Object helloAround(ProcessPoint processPoint) throws Throwable {
+            System.out.println("方法（Around）正在开始：" + processPoint.getMethod().getName());
+            Object obj = processPoint.process();
+            System.out.println("方法（Around）已经结束：" + processPoint.getMethod().getName());
+            return obj;
+        }
+
+        @Aspect(byNameRegex = "test*",at = AspectAt.AROUND)
+        public Object helloAroundMultiple(ProcessPoint processPoint) throws Throwable {
+            System.out.println("方法（AroundMultiple）正在开始：" + processPoint.getMethod().getName());
+            Object obj = processPoint.process();
+            System.out.println("方法（AroundMultiple）已经结束：" + processPoint.getMethod().getName());
+            return obj;
+        }
+
+    }
+
+    public static class SlowSingletonClass {
+
+        private static final AtomicInteger created = new AtomicInteger();
+
+        public SlowSingletonClass() throws InterruptedException {
+            created.incrementAndGet();
+            Thread.sleep(50);
+        }
+
+    }
+
+    public static class ConstructorCircleA {
+
+        @Inject
+        public ConstructorCircleA(ConstructorCircleB circleB) {
+
+        }
+
+    }
+
+    public static class ConstructorCircleB {
+
+        @Inject
+        public ConstructorCircleB(ConstructorCircleA circleA) {
+
+        }
+
+    }
+
+    public interface MissingService {
+
+    }
+
+    public static class MissingDependencyClass {
+
+        @Inject
+        private MissingService service;
+
+    }
+
+    public interface GreetingService {
+
+        String greeting();
+
+    }
+
+    public static class GreetingServiceImpl implements GreetingService {
+
+        @Override
+        public String greeting() {
+            return "hello";
+        }
+
+    }
+
+    public static class OtherGreetingService implements GreetingService {
+
+        @Override
+        public String greeting() {
+            return "hi";
+        }
 
-        public CircleTestClassA() {
+    }
 
-        }
+    public interface LazyService {
 
-        @Inject
-        public void setTestClassB(CircleTestClassB testClassB) {
+        String hello();
+
+    }
+
+    public static class LazyServiceImpl implements LazyService {
+
+        private static AtomicInteger created = new AtomicInteger();
+
+        public LazyServiceImpl() {
+            created.incrementAndGet();
+        }
 
+        @Override
+        public String hello() {
+            return "hello";
         }
 
     }
 
-    public static class CircleTestClassB {
+    public static class LazyConsumer {
 
+        @Lazy
         @Inject
-        public CircleTestClassB(CircleTestClassA classA) {
-
-        }
+        private LazyService service;
 
     }
 
-    @Prototype
-    public static class PrototypeClass {
+    public static class AsyncInitA {
 
-        public PrototypeClass() {
+        private static CountDownLatch started = new CountDownLatch(2);
 
+        private volatile boolean ready;
+
+        @AsyncInit
+        @PostConstruct
+        public void init() throws InterruptedException {
+            // 两个组件同时初始化的时候才能通过
+            started.countDown();
+            ready = started.await(5, TimeUnit.SECONDS);
         }
 
     }
 
-    public static class TestProvider implements Provider<ConstructorTestClass> {
+    public static class AsyncInitB {
 
-        @Inject
-        private NoArgConstructorClass constructorClass;
+        private volatile boolean ready;
 
-        @Override
-        public ConstructorTestClass get() {
-            return new ConstructorTestClass(constructorClass);
+        @AsyncInit
+        @PostConstruct
+        public void init() throws InterruptedException {
+            AsyncInitA.started.countDown();
+            ready = AsyncInitA.started.await(5, TimeUnit.SECONDS);
         }
 
     }
 
-    @Prototype
-    public static class CleanerTest {
+    public static class AsyncInitConsumer {
 
-        @PreDestroy
-        public void cleaner() {
-            System.out.println("Cleaned");
+        @Inject
+        private AsyncInitA initA;
+
+        @Inject
+        private AsyncInitB initB;
+
+        private boolean dependenciesReady;
+
+        @PostConstruct
+        public void init() {
+            dependenciesReady = initA.ready && initB.ready;
         }
 
     }
 
-    @Dependency
-    public static class DeclareClass {
+    public static class ProviderConsumer {
 
-        @Factory
-        public NoArgConstructorClass noArgConstructor() {
-            return new NoArgConstructorClass();
-        }
+        private Provider<PrototypeClass> prototypes;
 
-        @Factory
-        public ConstructorTestClass testClass(NoArgConstructorClass noArgConstructorClass) {
-            return new ConstructorTestClass(noArgConstructorClass);
+        @Inject
+        private Supplier<NoArgConstructorClass> singleton;
+
+        @Inject
+        public ProviderConsumer(Provider<PrototypeClass> prototypes) {
+            this.prototypes = prototypes;
         }
 
     }
 
-    @Interceptor
-    public static class Advice {
+    public static class ProviderCircleA {
 
-        @Aspect(byNameRegex = "test*",at = AspectAt.BEFORE)
-        public void hello(InvocationPoint point) {
-            System.out.println("正在执行方法：" + point.getMethod().getName());
-        }
+        private Provider<ProviderCircleB> circleB;
 
-        @Aspect(byNameRegex = "test*",at = AspectAt.AFTER)
-        public void helloExit(InvocationPoint point) {
-            System.out.println("方法已经结束：" + point.getMethod().getName());
+        @Inject
+        public ProviderCircleA(Provider<ProviderCircleB> circleB) {
+            this.circleB = circleB;
         }
 
-        @Aspect(byNameRegex = "test*",at = AspectAt.AROUND)
-        public Object helloAround(ProcessPoint processPoint) throws Throwable {
-            System.out.println("方法（Around）正在开始：" + processPoint.getMethod().getName());
-            Object obj = processPoint.process();
-            System.out.println("方法（Around）已经结束：" + processPoint.getMethod().getName());
-            return obj;
-        }
+    }
 
-        @Aspect(byNameRegex = "test*",at = AspectAt.AROUND)
-        public Object helloAroundMultiple(ProcessPoint processPoint) throws Throwable {
-            System.out.println("方法（AroundMultiple）正在开始：" + processPoint.getMethod().getName());
-            Object obj = processPoint.process();
-            System.out.println("方法（AroundMultiple）已经结束：" + processPoint.getMethod().getName());
-            return obj;
+    public static class ProviderCircleB {
+
+        private ProviderCircleA circleA;
+
+        @Inject
+        public ProviderCircleB(ProviderCircleA circleA) {
+            this.circleA = circleA;
         }
 
     }
@@ -218,6 +911,14 @@ public class AnnotationEnvironmentTest {
         }
     }
 
+    @Test
+    public void testCreateAfterUnResolvedCircle() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        Assertions.assertThrows(RuntimeException.class,() -> environment.getByClass(CircleTestClassB.class));
+        // 失败的创建不能在本线程留下未完成的组件
+        Assertions.assertNotNull(environment.getByClass(CircleTestClassA.class));
+    }
+
     @Test
     public void testCustomScope() {
         AnnotationEnvironment environment = new AnnotationEnvironment();
@@ -275,4 +976,775 @@ public class AnnotationEnvironmentTest {
         Assertions.assertNotNull(context.getByAbstract(TestAC1.class));
     }
 
+    @Test
+    public void testPackageScanCache() throws Exception {
+        Path cacheFolder = Files.createTempDirectory("swdc-scan");
+        new AnnotationLoader()
+                .withScanCache(cacheFolder)
+                .withPackage("org.swdc.dependency.testpkg")
+                .load();
+
+        List<String> cached = Files.readAllLines(cacheFolder.resolve("org.swdc.dependency.testpkg.scan"));
+        Assertions.assertTrue(cached.contains(TestC1.class.getName()));
+        Assertions.assertFalse(cached.contains(TestDTO.class.getName()));
+
+        DependencyContext context = new AnnotationLoader()
+                .withScanCache(cacheFolder)
+                .withPackage("org.swdc.dependency.testpkg")
+                .load();
+        Assertions.assertNotNull(context.getByName("testA"));
+    }
+
+    @Test
+    public void testGeneratedFactories() {
+        AnnotationLoader loader = new AnnotationLoader().withGeneratedFactories();
+        DependencyContext context = loader.load();
+
+        FieldAndSetterClass fieldAndSetterClass = context.getByClass(FieldAndSetterClass.class);
+        Assertions.assertNotNull(fieldAndSetterClass.constructorClass);
+        Assertions.assertNotNull(fieldAndSetterClass.testClass);
+
+        PrototypeClass prototypeClass = context.getByClass(PrototypeClass.class);
+        Assertions.assertNotNull(prototypeClass);
+        Assertions.assertNotEquals(prototypeClass,context.getByClass(PrototypeClass.class));
+
+        // 确认使用的是生成的工厂类，而不是回退到了MethodHandle
+        AnnotationEnvironment environment = (AnnotationEnvironment) context;
+        InjectionPlan plan = environment.findInfo(FieldAndSetterClass.class).getInjectionPlan();
+        Assertions.assertNotNull(plan.getInstantiator());
+        Assertions.assertTrue(plan.getInstantiator().getClass().getName().contains("$$SWFactory"));
+        for (InjectionPoint point : plan.getInjectionPoints()) {
+            if (point.getType() == InjectionPoint.Type.SETTER) {
+                Assertions.assertNotNull(point.getInvoker());
+                Assertions.assertTrue(point.getInvoker().getClass().getName().contains("$$SWFactory"));
+            }
+        }
+    }
+
+    @Test
+    public void testGeneratedFactoryFallback() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.setGenerateFactories(true);
+
+        // 私有的类无法从生成的类中访问，继续使用MethodHandle创建
+        PrivateFactoryClass created = environment.getByClass(PrivateFactoryClass.class);
+        Assertions.assertNotNull(created);
+        Assertions.assertNotNull(created.constructorClass);
+        InjectionPlan plan = environment.findInfo(PrivateFactoryClass.class).getInjectionPlan();
+        Assertions.assertNull(plan.getInstantiator());
+    }
+
+    @Test
+    public void testConcurrentSingleton() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SlowSingletonClass>> results = new ArrayList<>();
+        for (int idx = 0; idx < 8; idx ++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return environment.getByClass(SlowSingletonClass.class);
+            }));
+        }
+        start.countDown();
+
+        SlowSingletonClass first = results.get(0).get();
+        for (Future<SlowSingletonClass> result : results) {
+            Assertions.assertSame(first,result.get());
+        }
+        Assertions.assertEquals(1,SlowSingletonClass.created.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLoadAsync() throws Exception {
+        DependencyContext context = new AnnotationLoader()
+                .withComponent(FieldAndSetterClass.class)
+                .withComponent(CircleTestClassA.class)
+                .withComponent(PrototypeClass.class)
+                .loadAsync()
+                .get();
+
+        List<Object> components = context.getAllComponent();
+        Assertions.assertTrue(components.stream().anyMatch(c -> c instanceof FieldAndSetterClass));
+        Assertions.assertTrue(components.stream().anyMatch(c -> c instanceof ConstructorTestClass));
+        Assertions.assertTrue(components.stream().anyMatch(c -> c instanceof CircleTestClassA));
+        Assertions.assertTrue(components.stream().anyMatch(c -> c instanceof CircleTestClassB));
+
+        FieldAndSetterClass fieldAndSetterClass = context.getByClass(FieldAndSetterClass.class);
+        Assertions.assertNotNull(fieldAndSetterClass.testClass);
+    }
+
+    @Test
+    public void testValidateOnLoad() {
+        AnnotationLoader circleLoader = new AnnotationLoader()
+                .withComponent(ConstructorCircleA.class)
+                .withComponent(CircleTestClassA.class);
+        RuntimeException circle = Assertions.assertThrows(RuntimeException.class, circleLoader::load);
+        Assertions.assertTrue(circle.getMessage().contains(ConstructorCircleA.class.getName()));
+        Assertions.assertFalse(circle.getMessage().contains(CircleTestClassA.class.getName()));
+
+        AnnotationLoader missingLoader = new AnnotationLoader()
+                .withComponent(MissingDependencyClass.class);
+        RuntimeException missing = Assertions.assertThrows(RuntimeException.class, missingLoader::load);
+        Assertions.assertTrue(missing.getMessage().contains(MissingService.class.getName()));
+    }
+
+    @Test
+    public void testRepeatedLookup() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        FieldAndSetterClass first = environment.getByClass(FieldAndSetterClass.class);
+        Assertions.assertSame(first,environment.getByClass(FieldAndSetterClass.class));
+        Assertions.assertNotSame(environment.getByClass(PrototypeClass.class),environment.getByClass(PrototypeClass.class));
+
+        environment.close();
+        Assertions.assertThrows(RuntimeException.class,() -> environment.getByClass(FieldAndSetterClass.class));
+    }
+
+    @Test
+    public void testLookupCacheReleasesEnvironment() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.getByClass(FieldAndSetterClass.class);
+        WeakReference<AnnotationEnvironment> reference = new WeakReference<>(environment);
+        environment = null;
+
+        // 没有关闭的依赖环境也不应该被类型的缓存引用
+        for (int idx = 0; idx < 50 && reference.get() != null; idx ++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assertions.assertNull(reference.get());
+    }
+
+    @Test
+    public void testLookupByInterface() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(GreetingServiceImpl.class);
+        GreetingService service = environment.getByClass(GreetingService.class);
+        Assertions.assertTrue(service instanceof GreetingServiceImpl);
+        Assertions.assertSame(service,environment.getByClass(GreetingServiceImpl.class));
+
+        environment.registerComponent(OtherGreetingService.class);
+        Assertions.assertThrows(IllegalStateException.class,() -> environment.getByClass(GreetingService.class));
+    }
+
+    @Test
+    public void testRegisterComponents() {
+        List<Class> components = List.of(
+                FieldAndSetterClass.class, ConstructorTestClass.class, NoArgConstructorClass.class,
+                CircleTestClassA.class, CircleTestClassB.class, SuperInjectionClass.class, PrototypeClass.class
+        );
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponents(components);
+
+        List<ComponentInfo> infos = environment.getDependencyGraph().getComponents();
+        Assertions.assertEquals(infos.size(), infos.stream().map(ComponentInfo::getClazz).distinct().count());
+        for (Class component : components) {
+            Assertions.assertNotNull(environment.findInfo(component));
+        }
+        FieldAndSetterClass fieldAndSetterClass = environment.getByClass(FieldAndSetterClass.class);
+        Assertions.assertNotNull(fieldAndSetterClass.testClass);
+        Assertions.assertSame(fieldAndSetterClass.constructorClass, environment.getByClass(NoArgConstructorClass.class));
+    }
+
+    @Test
+    public void testDependencyGraphReplaced() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(ReplacedReport.class);
+        ComponentInfo parsed = environment.findInfo(ReplacedReport.class);
+        Assertions.assertTrue(environment.getDependencyGraph().getComponents().stream().anyMatch(i -> i == parsed));
+
+        // 工厂声明的组件替换了解析的组件，组件的数量没有变化
+        environment.registerComponent(ReplacedReportDeclare.class);
+        ComponentInfo declared = environment.findInfo(ReplacedReport.class);
+        Assertions.assertNotSame(parsed,declared);
+        List<ComponentInfo> components = environment.getDependencyGraph().getComponents();
+        Assertions.assertTrue(components.stream().anyMatch(i -> i == declared));
+        Assertions.assertFalse(components.stream().anyMatch(i -> i == parsed));
+    }
+
+    @Test
+    public void testRegisterExecutor() {
+        AtomicInteger submitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Class> components = List.of(
+                FieldAndSetterClass.class, ConstructorTestClass.class, NoArgConstructorClass.class
+        );
+        DependencyContext context = new AnnotationLoader()
+                .withRegisterExecutor(task -> {
+                    submitted.incrementAndGet();
+                    executor.execute(task);
+                })
+                .withComponents(components)
+                .load();
+        executor.shutdown();
+
+        // 组件在指定的线程池中解析，而不是ForkJoinPool
+        Assertions.assertEquals(components.size(),submitted.get());
+        FieldAndSetterClass fieldAndSetterClass = context.getByClass(FieldAndSetterClass.class);
+        Assertions.assertNotNull(fieldAndSetterClass.testClass);
+    }
+
+    @Test
+    public void testLazyInjection() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(LazyServiceImpl.class);
+        LazyConsumer consumer = environment.getByClass(LazyConsumer.class);
+        Assertions.assertNotNull(consumer.service);
+        Assertions.assertEquals(0,LazyServiceImpl.created.get());
+
+        Assertions.assertEquals("hello",consumer.service.hello());
+        Assertions.assertEquals(1,LazyServiceImpl.created.get());
+        consumer.service.hello();
+        Assertions.assertEquals(1,LazyServiceImpl.created.get());
+    }
+
+    @Test
+    public void testProviderInjection() {
+        DependencyContext context = new AnnotationLoader()
+                .withComponent(ProviderConsumer.class)
+                .withComponent(ProviderCircleA.class)
+                .load();
+
+        ProviderConsumer consumer = context.getByClass(ProviderConsumer.class);
+        Assertions.assertNotSame(consumer.prototypes.get(),consumer.prototypes.get());
+        Assertions.assertSame(context.getByClass(NoArgConstructorClass.class),consumer.singleton.get());
+        Assertions.assertSame(consumer.singleton.get(),consumer.singleton.get());
+
+        ProviderCircleA circleA = context.getByClass(ProviderCircleA.class);
+        Assertions.assertSame(circleA,circleA.circleB.get().circleA);
+    }
+
+    @Test
+    public void testAsyncInit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.setInitExecutor(executor);
+        AsyncInitConsumer consumer = environment.getByClass(AsyncInitConsumer.class);
+        Assertions.assertTrue(consumer.dependenciesReady);
+        Assertions.assertTrue(environment.getByClass(AsyncInitA.class).ready);
+        environment.close();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncFactory() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        DependencyContext context = new AnnotationLoader()
+                .withDeclare(AsyncDeclareClass.class)
+                .withComponent(AsyncResourceConsumer.class)
+                .loadAsync(executor)
+                .get(10, TimeUnit.SECONDS);
+
+        AsyncResourceConsumer consumer = context.getByClass(AsyncResourceConsumer.class);
+        Assertions.assertTrue(consumer.dataFile.concurrent);
+        Assertions.assertTrue(context.getByClass(AsyncResource.class).concurrent);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncFactoryLookup() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(PendingDeclareClass.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // 直接获取异步工厂方法提供的组件，调用者的线程会等待Future完成
+        Future<PendingResource> lookup = executor.submit(() -> environment.getByClass(PendingResource.class));
+        Assertions.assertThrows(TimeoutException.class,() -> lookup.get(100,TimeUnit.MILLISECONDS));
+        PendingResource resource = new PendingResource();
+        PendingDeclareClass.pending.complete(resource);
+        Assertions.assertSame(resource,lookup.get(5,TimeUnit.SECONDS));
+
+        RuntimeException failed = Assertions.assertThrows(RuntimeException.class,() -> environment.getByClass(FailedResource.class));
+        Assertions.assertTrue(failed.getCause() instanceof IllegalStateException);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testOrderedClose() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.getByClass(ShutdownService.class);
+        environment.getByClass(SlowShutdown.class);
+
+        // 超时的组件不影响其他组件的销毁，环境仍然会被关闭
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> environment.close(executor, Duration.ofMillis(200), Duration.ofSeconds(5)));
+        executor.shutdownNow();
+        Assertions.assertEquals(1,exception.getSuppressed().length);
+        Assertions.assertEquals(List.of("service","repository"),ShutdownRepository.destroyed);
+        Assertions.assertThrows(RuntimeException.class,() -> environment.getByClass(ShutdownService.class));
+    }
+
+    @Test
+    public void testConcurrentClose() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.getByClass(CloseRecorder.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> closing = new ArrayList<>();
+        for (int idx = 0; idx < 2; idx ++) {
+            closing.add(executor.submit(() -> {
+                start.await();
+                environment.close();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<Object> close : closing) {
+            close.get(5,TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 同时关闭只会销毁一次，销毁方法在单独的守护线程中执行
+        Assertions.assertEquals(1,CloseRecorder.destroyed.get());
+        Assertions.assertTrue(CloseRecorder.destroyThread.isDaemon());
+        Assertions.assertFalse(CloseRecorder.destroyThread instanceof ForkJoinWorkerThread);
+    }
+
+    @Test
+    public void testPooledScope() {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(PooledFormatter.class);
+        PooledDependencyScope scope = (PooledDependencyScope) environment.getScope(Pooled.class);
+
+        PooledFormatter first = null;
+        try (ComponentPool.Lease<PooledFormatter> leaseA = scope.borrow(PooledFormatter.class);
+             ComponentPool.Lease<PooledFormatter> leaseB = scope.borrow(PooledFormatter.class)) {
+            first = leaseA.get();
+            Assertions.assertNotSame(leaseA.get(),leaseB.get());
+            Assertions.assertNotNull(leaseA.get().dependency);
+            // 池中的组件全部被借出，等待超时
+            Assertions.assertThrows(RuntimeException.class,() -> scope.borrow(PooledFormatter.class));
+        }
+
+        ComponentPool<PooledFormatter> pool = scope.getPool(PooledFormatter.class);
+        try (ComponentPool.Lease<PooledFormatter> lease = scope.borrow(PooledFormatter.class)) {
+            Assertions.assertTrue(lease.get() == first || pool.getInstances().contains(lease.get()));
+            Assertions.assertEquals(1,pool.getActive());
+        }
+        Assertions.assertEquals(2,pool.getInstances().size());
+        Assertions.assertEquals(3,pool.getBorrowCount());
+        Assertions.assertEquals(1,pool.getWaitCount());
+        Assertions.assertFalse(pool.getMaxWaitTime().isZero());
+
+        Assertions.assertEquals("1",environment.getByClass(PooledFormatter.class).format(1));
+    }
+
+    @Test
+    public void testPooledScopeClose() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(PooledConnection.class);
+        PooledDependencyScope scope = (PooledDependencyScope) environment.getScope(Pooled.class);
+        PooledConnection connection = environment.getByClass(PooledConnection.class);
+        Assertions.assertEquals("result",connection.query());
+
+        ComponentPool.Lease<PooledConnection> borrowed = scope.borrow(PooledConnection.class);
+        scope.borrow(PooledConnection.class).close();
+        ComponentPool<PooledConnection> pool = scope.getPool(PooledConnection.class);
+        Assertions.assertEquals(2,pool.getInstances().size());
+        Assertions.assertEquals(1,pool.getIdle());
+
+        // 关闭的时候销毁空闲的组件，借出的组件在归还的时候销毁
+        environment.close();
+        Assertions.assertTrue(pool.isClosed());
+        Assertions.assertEquals(1,PooledConnection.destroyed.get());
+        Assertions.assertThrows(IllegalStateException.class,() -> scope.borrow(PooledConnection.class));
+        borrowed.close();
+        Assertions.assertEquals(2,PooledConnection.destroyed.get());
+        Assertions.assertTrue(pool.getInstances().isEmpty());
+
+        // 代理对象不再借出和创建组件
+        Assertions.assertThrows(IllegalStateException.class,connection::query);
+    }
+
+    @Test
+    public void testPoolDestroyFailure() throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        ComponentPool<Object> pool = new ComponentPool<>("failing",Object::new,instance -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("destroy failed");
+        },2,10,100);
+
+        // 借出的时候移出空闲超时的组件，销毁失败不影响借出
+        Object first = pool.borrow();
+        pool.release(first);
+        Thread.sleep(30);
+        Object borrowed = pool.borrow();
+        Assertions.assertNotSame(first,borrowed);
+        Assertions.assertEquals(1,failures.get());
+        Assertions.assertEquals(1,pool.getInstances().size());
+
+        // 归还的时候移出空闲超时的组件，销毁失败不影响归还
+        Object second = pool.borrow();
+        pool.release(borrowed);
+        Thread.sleep(30);
+        pool.release(second);
+        Assertions.assertEquals(2,failures.get());
+        Assertions.assertEquals(1,pool.getInstances().size());
+
+        // 池的容量没有减少
+        Object third = pool.borrow();
+        Object fourth = pool.borrow();
+        Assertions.assertNotSame(third,fourth);
+        Assertions.assertEquals(2,pool.getActive());
+    }
+
+    @Test
+    public void testThreadScope() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        ThreadLocalBuffer buffer = environment.getByClass(ThreadLocalBuffer.class);
+        Assertions.assertSame(buffer,environment.getByClass(ThreadLocalBuffer.class));
+        Assertions.assertNotNull(buffer.dependency);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ThreadDependencyScope scope = (ThreadDependencyScope) environment.getScope(ThreadScoped.class);
+        ThreadLocalBuffer other = executor.submit(() -> {
+            ThreadLocalBuffer created = environment.getByClass(ThreadLocalBuffer.class);
+            scope.exit();
+            return created;
+        }).get();
+        executor.shutdown();
+        Assertions.assertNotSame(buffer,other);
+        Assertions.assertSame(buffer.dependency,other.dependency);
+        Assertions.assertEquals(1,ThreadLocalBuffer.destroyed.get());
+
+        scope.exit();
+        Assertions.assertEquals(2,ThreadLocalBuffer.destroyed.get());
+        Assertions.assertNotSame(buffer,environment.getByClass(ThreadLocalBuffer.class));
+    }
+
+    @Test
+    public void testThreadScopeClose() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        ThreadDependencyScope scope = (ThreadDependencyScope) environment.getScope(ThreadScoped.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        int destroyed = ThreadLocalBuffer.destroyed.get();
+
+        environment.getByClass(ThreadLocalBuffer.class);
+        executor.submit(() -> environment.getByClass(ThreadLocalBuffer.class)).get();
+        Assertions.assertEquals(2,scope.getAllComponent().size());
+
+        // 关闭的时候销毁全部线程的组件，不只是调用者线程的
+        environment.close();
+        Assertions.assertEquals(destroyed + 2,ThreadLocalBuffer.destroyed.get());
+        Assertions.assertTrue(scope.getAllComponent().isEmpty());
+        Assertions.assertNull(executor.submit(() -> scope.getByClass(ThreadLocalBuffer.class)).get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testContextScope() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        ContextDependencyScope scope = (ContextDependencyScope) environment.getScope(ContextScoped.class);
+
+        try (ScopeContext context = scope.open(); ScopeContext other = scope.open()) {
+            RequestData data = context.call(() -> environment.getByClass(RequestData.class));
+            RequestData first = context.call(data::self);
+            Assertions.assertSame(first,context.call(() -> environment.getByClass(RequestData.class).self()));
+            Assertions.assertNotSame(first,other.call(() -> environment.getByClass(RequestData.class).self()));
+            Assertions.assertNull(ScopeContext.current());
+        }
+        Assertions.assertEquals(2,RequestData.destroyed.get());
+
+        // 同时放入的组件只使用先放入的，其他的在上下文关闭的时候销毁
+        try (ScopeContext racing = scope.open()) {
+            RequestData winner = new RequestData();
+            Assertions.assertSame(winner,racing.call(() -> scope.put(null,RequestData.class,winner)));
+            Assertions.assertSame(winner,racing.call(() -> scope.put(null,RequestData.class,new RequestData())));
+            Assertions.assertSame(winner,racing.call(() -> environment.getByClass(RequestData.class).self()));
+        }
+        Assertions.assertEquals(4,RequestData.destroyed.get());
+
+        // 没有绑定上下文的时候无法使用上下文组件
+        Assertions.assertThrows(IllegalStateException.class,() -> environment.getByClass(RequestData.class).self());
+    }
+
+    @Test
+    public void testContextScopeInit() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        ContextDependencyScope scope = (ContextDependencyScope) environment.getScope(ContextScoped.class);
+        environment.registerComponent(RequestReport.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (ScopeContext context = scope.open()) {
+            Future<Boolean> first = executor.submit(() -> context.call(() -> environment.getByClass(RequestReport.class).isInitialized()));
+            RequestReport.initializing.await();
+
+            // 初始化完成之前，同一个上下文中的其他线程不能使用这个组件
+            Future<Boolean> second = executor.submit(() -> context.call(() -> environment.getByClass(RequestReport.class).isInitialized()));
+            Assertions.assertThrows(TimeoutException.class,() -> second.get(100,TimeUnit.MILLISECONDS));
+            RequestReport.release.countDown();
+            Assertions.assertTrue(first.get(5,TimeUnit.SECONDS));
+            Assertions.assertTrue(second.get(5,TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testOrderedAbstract() {
+        List<Class> plugins = List.of(LastPlugin.class,DefaultPlugin.class,FirstPlugin.class);
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponents(plugins);
+        OrderedPlugin.created.set(0);
+
+        // 只会创建被读取的实现
+        Assertions.assertTrue(environment.streamByAbstract(OrderedPlugin.class).findFirst().get() instanceof FirstPlugin);
+        Assertions.assertEquals(1,OrderedPlugin.created.get());
+
+        List<OrderedPlugin> components = environment.getByAbstract(OrderedPlugin.class);
+        Assertions.assertEquals(3,components.size());
+        Assertions.assertTrue(components.get(0) instanceof FirstPlugin);
+        Assertions.assertTrue(components.get(1) instanceof DefaultPlugin);
+        Assertions.assertTrue(components.get(2) instanceof LastPlugin);
+        Assertions.assertEquals(3,OrderedPlugin.created.get());
+        Assertions.assertSame(components,environment.getByAbstract(OrderedPlugin.class));
+        Assertions.assertThrows(UnsupportedOperationException.class,() -> components.remove(0));
+
+        PluginConsumer consumer = environment.getByClass(PluginConsumer.class);
+        Assertions.assertSame(components,consumer.plugins);
+
+        // 新的环境中并行的创建全部实现
+        AnnotationEnvironment other = new AnnotationEnvironment();
+        other.registerComponents(plugins);
+        List<OrderedPlugin> created = other.getByAbstract(OrderedPlugin.class);
+        Assertions.assertTrue(created.get(0) instanceof FirstPlugin);
+        Assertions.assertTrue(created.get(2) instanceof LastPlugin);
+        Assertions.assertNotSame(components.get(0),created.get(0));
+    }
+
+    @Test
+    public void testAbstractInInitMethod() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponents(List.of(FirstHook.class,SecondHook.class));
+        HookRegistry.environment = environment;
+
+        // 初始化方法执行的时候持有创建锁，实现需要在当前线程中创建
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            HookRegistry registry = executor.submit(() -> environment.getByClass(HookRegistry.class))
+                    .get(10,TimeUnit.SECONDS);
+            Assertions.assertEquals(2,registry.hooks.size());
+            for (StartupHook hook : registry.hooks) {
+                HookRegistry injected = hook instanceof FirstHook ?
+                        ((FirstHook) hook).registry :
+                        ((SecondHook) hook).registry;
+                Assertions.assertSame(registry,injected);
+            }
+        } finally {
+            executor.shutdownNow();
+            HookRegistry.environment = null;
+        }
+    }
+
+    @Test
+    public void testCachedScope() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        CachedDependencyScope scope = (CachedDependencyScope) environment.getScope(Cached.class);
+        scope.setMaximumSize(1);
+
+        CachedIndex index = environment.getByClass(CachedIndex.class);
+        int generation = index.getGeneration();
+        Assertions.assertEquals("template",environment.getByClass(CachedTemplate.class).render());
+        // 超过容量，最久没有使用的组件被移出
+        Assertions.assertEquals(1,CachedIndex.destroyed.get());
+        Assertions.assertEquals(1,scope.size());
+
+        // 存活时间结束后移出
+        Thread.sleep(100);
+        Assertions.assertEquals(0,scope.size());
+        Assertions.assertEquals(1,CachedTemplate.destroyed.get());
+        Assertions.assertEquals(2,scope.getEvictedCount());
+
+        // 代理对象重新创建被移出的组件
+        int recreated = index.getGeneration();
+        Assertions.assertNotEquals(generation,recreated);
+        Assertions.assertEquals(recreated,index.getGeneration());
+        scope.invalidate(CachedIndex.class);
+        Assertions.assertEquals(2,CachedIndex.destroyed.get());
+
+        // 正在调用的组件被移出之后，在调用结束后才会销毁
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> inFlight = executor.submit(() -> index.search(entered,release));
+        entered.await();
+        scope.invalidate(CachedIndex.class);
+        Assertions.assertEquals(2,CachedIndex.destroyed.get());
+        release.countDown();
+        inFlight.get();
+        Assertions.assertEquals(3,CachedIndex.destroyed.get());
+        executor.shutdown();
+
+        // 关闭之后代理对象不再创建组件
+        environment.close();
+        int created = CachedIndex.created.get();
+        Assertions.assertThrows(IllegalStateException.class,index::getGeneration);
+        Assertions.assertEquals(created,CachedIndex.created.get());
+    }
+
+    @Test
+    public void testCachedScopeInit() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Boolean> first = executor.submit(() -> environment.getByClass(CachedReport.class).isInitialized());
+        CachedReport.initializing.await();
+
+        // 初始化完成之前，其他线程不能使用缓存中的组件
+        Future<Boolean> second = executor.submit(() -> environment.getByClass(CachedReport.class).isInitialized());
+        Assertions.assertThrows(TimeoutException.class,() -> second.get(100,TimeUnit.MILLISECONDS));
+        CachedReport.release.countDown();
+        Assertions.assertTrue(first.get(5,TimeUnit.SECONDS));
+        Assertions.assertTrue(second.get(5,TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRefreshScope() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        RefreshDependencyScope scope = (RefreshDependencyScope) environment.getScope(RefreshScoped.class);
+
+        RoutingTable table = environment.getByClass(RoutingTable.class);
+        int version = table.getVersion();
+        Assertions.assertSame(table,environment.getByClass(RoutingTable.class));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> inFlight = executor.submit(() -> table.route(entered,release));
+        entered.await();
+
+        CompletableFuture<Void> refreshed = scope.refresh(RoutingTable.class);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (table.getVersion() == version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // 新的调用交给新的组件，旧的组件在调用结束后才会销毁
+        Assertions.assertNotEquals(version,table.getVersion());
+        Assertions.assertEquals(0,RoutingTable.destroyed.get());
+        Assertions.assertFalse(refreshed.isDone());
+
+        release.countDown();
+        int routed = inFlight.get();
+        Assertions.assertEquals(version,routed);
+        refreshed.get(5,TimeUnit.SECONDS);
+        Assertions.assertEquals(1,RoutingTable.destroyed.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRefreshScopeNamed() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(RouteDeclare.class);
+        RefreshDependencyScope scope = (RefreshDependencyScope) environment.getScope(RefreshScoped.class);
+
+        // 具名组件第一次获取的时候也返回代理对象
+        Route route = environment.getByName("namedRoute");
+        Assertions.assertTrue(Proxy.isProxyClass(route.getClass()));
+        Assertions.assertSame(route,environment.getByName("namedRoute"));
+        int version = route.getVersion();
+
+        scope.refresh("namedRoute").get(5,TimeUnit.SECONDS);
+        Assertions.assertNotEquals(version,route.getVersion());
+    }
+
+    @Test
+    public void testStripedScope() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        StripedDependencyScope scope = (StripedDependencyScope) environment.getScope(Striped.class);
+
+        StripedCounter counter = environment.getByClass(StripedCounter.class);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        for (int idx = 0; idx < 8; idx ++) {
+            results.add(executor.submit(() -> {
+                for (int count = 0; count < 1000; count ++) {
+                    counter.increment();
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        long total = scope.aggregate(StripedCounter.class,stripes -> stripes.stream()
+                .mapToLong(StripedCounter::getCount)
+                .sum());
+        Assertions.assertEquals(8000L,total);
+        // 段的数量向上取整到2的幂
+        List<StripedCounter> stripes = scope.getStripes(StripedCounter.class);
+        Assertions.assertTrue(stripes.size() >= 1 && stripes.size() <= 4);
+    }
+
+    @Test
+    public void testStripedCreationRace() throws Exception {
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        StripedDependencyScope scope = (StripedDependencyScope) environment.getScope(Striped.class);
+        // 先完成解析，两个线程只在创建段的时候竞争
+        environment.registerComponent(StripedSession.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<StripedSession> first = executor.submit(() -> environment.getByClass(StripedSession.class).self());
+        Future<StripedSession> second = executor.submit(() -> environment.getByClass(StripedSession.class).self());
+        // 只保留先放入的组件，另一个线程创建的组件被销毁
+        Assertions.assertSame(first.get(5,TimeUnit.SECONDS),second.get(5,TimeUnit.SECONDS));
+        Assertions.assertEquals(1,StripedSession.destroyed.get());
+        Assertions.assertEquals(List.of(first.get()),scope.getStripes(StripedSession.class));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testConcurrentScopePut() throws Exception {
+        SingletonDependencyScope scope = new SingletonDependencyScope();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int idx = 0; idx < 8; idx ++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int count = 0; count < 500; count ++) {
+                    scope.put(Object.class.getName(),Object.class,Runnable.class,new Object());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(4000,scope.getAllComponent().size());
+        List<Object> components = scope.getByAbstract((Class) Runnable.class);
+        Assertions.assertEquals(4000,components.size());
+        // 返回的是快照，不能修改
+        Assertions.assertThrows(UnsupportedOperationException.class,() -> components.add(new Object()));
+        Assertions.assertThrows(IllegalStateException.class,() -> scope.getByClass(Object.class));
+    }
+
+    @Test
+    public void testRegistrySnapshot() throws Exception {
+        Path snapshot = Files.createTempDirectory("swdc-snapshot").resolve("components.snapshot");
+
+        new AnnotationLoader()
+                .withSnapshot(snapshot)
+                .withComponent(FieldAndSetterClass.class)
+                .withComponent(CircleTestClassA.class)
+                .load();
+        Assertions.assertTrue(Files.exists(snapshot));
+
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        Assertions.assertTrue(environment.restoreSnapshot(snapshot) > 0);
+        Assertions.assertNotNull(environment.findInfo(ConstructorTestClass.class).getConstructorInfo());
+
+        FieldAndSetterClass fieldAndSetterClass = environment.getByClass(FieldAndSetterClass.class);
+        Assertions.assertNotNull(fieldAndSetterClass.testClass);
+        CircleTestClassA circleTestClassA = environment.getByClass(CircleTestClassA.class);
+        Assertions.assertNotNull(circleTestClassA);
+
+        // 已经注册了组件的环境不会读取快照
+        Assertions.assertEquals(0,environment.restoreSnapshot(snapshot));
+    }
+
 }
@@ -0,0 +1,185 @@
+package org.swdc.dependency;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.swdc.dependency.parser.AnnotationDependencyParser;
+import org.swdc.dependency.parser.ComponentIndex;
+import org.swdc.dependency.processor.ComponentIndexProcessor;
+import org.swdc.dependency.registry.ComponentInfo;
+import org.swdc.dependency.registry.DefaultDependencyRegistryContext;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 组件索引的测试类，通过注解处理器编译测试用的组件，
+ * 比较根据索引解析和通过反射解析的结果。
+ */
+public class ComponentIndexTest {
+
+    private static final String REPOSITORY = "package indexed;\n" +
+            "@jakarta.inject.Singleton\n" +
+            "public class IndexedRepository {\n" +
+            "}\n";
+
+    private static final String SERVICE = "package indexed;\n" +
+            "@jakarta.inject.Singleton\n" +
+            "@jakarta.inject.Named(\"indexedService\")\n" +
+            "public class IndexedService {\n" +
+            "    @jakarta.inject.Inject\n" +
+            "    private IndexedRepository repository;\n" +
+            "    @jakarta.annotation.PostConstruct\n" +
+            "    public void init() {\n" +
+            "    }\n" +
+            "}\n";
+
+    /**
+     * 索引中没有的组件，需要通过反射解析
+     */
+    @Singleton
+    public static class ReflectiveComponent {
+
+        @Inject
+        private ReflectiveDependency dependency;
+
+    }
+
+    @Singleton
+    public static class ReflectiveDependency {
+
+    }
+
+    /**
+     * 使用注解处理器编译源代码
+     * @param output 输出目录，也在classpath中
+     * @param sources 类名 - 源代码
+     */
+    private static void compile(Path output, String... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assertions.assertNotNull(compiler);
+        Path sourceDir = Files.createTempDirectory("swdc-index-src");
+        List<File> files = new ArrayList<>();
+        for (int idx = 0; idx < sources.length; idx += 2) {
+            Path file = sourceDir.resolve(sources[idx] + ".java");
+            Files.writeString(file,sources[idx + 1]);
+            files.add(file.toFile());
+        }
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null,null,StandardCharsets.UTF_8)) {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(files);
+            List<String> options = List.of(
+                    "-d",output.toString(),
+                    "-classpath",output + File.pathSeparator + System.getProperty("java.class.path")
+            );
+            JavaCompiler.CompilationTask task = compiler.getTask(null,fileManager,null,options,null,units);
+            task.setProcessors(List.of(new ComponentIndexProcessor()));
+            Assertions.assertTrue(task.call());
+        }
+    }
+
+    /**
+     * 只读取输出目录中的索引的类加载器，测试类本身是否被索引不影响结果
+     */
+    private static URLClassLoader indexLoader(Path output) throws Exception {
+        return new URLClassLoader(new URL[] { output.toUri().toURL() },ComponentIndexTest.class.getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return findResources(name);
+            }
+        };
+    }
+
+    private static String readIndex(Path output) throws Exception {
+        return Files.readString(output.resolve(ComponentIndex.LOCATION));
+    }
+
+    private static ComponentInfo parse(AnnotationDependencyParser parser, Class clazz) {
+        DefaultDependencyRegistryContext context = new DefaultDependencyRegistryContext();
+        parser.parse(clazz,context);
+        ComponentInfo info = context.findByClass(clazz);
+        Assertions.assertNotNull(info);
+        return info;
+    }
+
+    @Test
+    public void testIndexedParse() throws Exception {
+        Path output = Files.createTempDirectory("swdc-index");
+        compile(output,"IndexedRepository",REPOSITORY,"IndexedService",SERVICE);
+
+        try (URLClassLoader loader = indexLoader(output)) {
+            ComponentIndex index = ComponentIndex.load(loader);
+            Class service = loader.loadClass("indexed.IndexedService");
+            Assertions.assertNotNull(index.find(service));
+            Assertions.assertNotNull(index.find(loader.loadClass("indexed.IndexedRepository")));
+
+            // 根据索引解析的结果应该和反射解析的相同
+            ComponentInfo indexed = parse(new AnnotationDependencyParser(index),service);
+            ComponentInfo reflected = parse(new AnnotationDependencyParser(),service);
+            Assertions.assertEquals(reflected.getName(),indexed.getName());
+            Assertions.assertEquals("indexedService",indexed.getName());
+            Assertions.assertEquals(reflected.getScope(),indexed.getScope());
+            Assertions.assertEquals(reflected.getInitMethod(),indexed.getInitMethod());
+            Assertions.assertEquals(1,indexed.getDependencyInfos().size());
+            Assertions.assertEquals(
+                    reflected.getDependencyInfos().get(0).getField(),
+                    indexed.getDependencyInfos().get(0).getField()
+            );
+        }
+    }
+
+    @Test
+    public void testReflectiveParse() throws Exception {
+        Path output = Files.createTempDirectory("swdc-index");
+        compile(output,"IndexedRepository",REPOSITORY);
+
+        try (URLClassLoader loader = indexLoader(output)) {
+            ComponentIndex index = ComponentIndex.load(loader);
+            Assertions.assertFalse(index.isEmpty());
+            Assertions.assertNull(index.find(ReflectiveComponent.class));
+
+            // 没有被索引的组件通过反射解析
+            ComponentInfo info = parse(new AnnotationDependencyParser(index),ReflectiveComponent.class);
+            Assertions.assertEquals(ReflectiveComponent.class.getName(),info.getName());
+            Assertions.assertEquals(Singleton.class,info.getScope());
+            Assertions.assertEquals(1,info.getDependencyInfos().size());
+            Assertions.assertEquals(
+                    ReflectiveComponent.class.getDeclaredField("dependency"),
+                    info.getDependencyInfos().get(0).getField()
+            );
+        }
+    }
+
+    @Test
+    public void testIncrementalIndex() throws Exception {
+        Path output = Files.createTempDirectory("swdc-index");
+        compile(output,"IndexedRepository",REPOSITORY,"IndexedService",SERVICE);
+
+        // 只编译其中一个类，另一个类的记录应该保留
+        compile(output,"IndexedService",SERVICE);
+        String index = readIndex(output);
+        Assertions.assertTrue(index.contains("component\tindexed.IndexedRepository\n"));
+        Assertions.assertTrue(index.contains("component\tindexed.IndexedService\n"));
+        Assertions.assertEquals(index.indexOf("component\tindexed.IndexedService\n"),
+                index.lastIndexOf("component\tindexed.IndexedService\n"));
+
+        // 重新编译后已经不是组件的类需要从索引中删除
+        compile(output,"IndexedService","package indexed;\npublic class IndexedService {\n}\n");
+        index = readIndex(output);
+        Assertions.assertTrue(index.contains("component\tindexed.IndexedRepository\n"));
+        Assertions.assertFalse(index.contains("indexed.IndexedService"));
+    }
+
+}
@@ -4,6 +4,7 @@ import jakarta.annotation.Resource;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Scope;
+import jakarta.inject.Singleton;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.swdc.dependency.annotations.Dependency;
@@ -156,6 +157,28 @@ public class DefaultRegisterTest {
 
     }
 
+    public static class TestSource {
+
+    }
+
+    /**
+     * 两个工厂方法提供同一个类型的具名组件
+     */
+    @Dependency
+    public static class SourceDeclare {
+
+        @Factory
+        public TestSource primary() {
+            return new TestSource();
+        }
+
+        @Factory
+        public TestSource secondary() {
+            return new TestSource();
+        }
+
+    }
+
     public static class TestProvider implements Provider<TestOne> {
 
         @Override
@@ -261,4 +284,43 @@ public class DefaultRegisterTest {
 
     }
 
+    @Test
+    public void testSameTypeFactories() {
+
+        DefaultDependencyRegistryContext context = new DefaultDependencyRegistryContext();
+        AnnotationDependencyParser parser = new AnnotationDependencyParser();
+        parser.parse(SourceDeclare.class,context);
+
+        ComponentInfo primary = context.findByNamed("primary");
+        ComponentInfo secondary = context.findByNamed("secondary");
+        Assertions.assertNotNull(primary);
+        Assertions.assertNotNull(secondary);
+        Assertions.assertNotSame(primary,secondary);
+        ComponentInfo typed = context.findByClass(TestSource.class);
+        Assertions.assertTrue(typed == primary || typed == secondary);
+
+        AnnotationEnvironment environment = new AnnotationEnvironment();
+        environment.registerComponent(SourceDeclare.class);
+        TestSource primarySource = environment.getByName("primary");
+        TestSource secondarySource = environment.getByName("secondary");
+        Assertions.assertNotNull(primarySource);
+        Assertions.assertNotNull(secondarySource);
+        Assertions.assertNotSame(primarySource,secondarySource);
+
+    }
+
+    @Test
+    public void testCreatable() {
+
+        Assertions.assertTrue(new ComponentInfo(TestOne.class,TestOne.class.getName(),Singleton.class).isCreatable());
+        Assertions.assertFalse(new ComponentInfo(Runnable.class,Runnable.class.getName(),Singleton.class).isCreatable());
+        Assertions.assertFalse(new ComponentInfo(int.class,int.class.getName(),Singleton.class).isCreatable());
+
+        // 工厂方法提供的接口可以创建
+        ComponentInfo provided = new ComponentInfo(Runnable.class,Runnable.class.getName(),Singleton.class);
+        provided.setFactory(TestProvider.class);
+        Assertions.assertTrue(provided.isCreatable());
+
+    }
+
 }
@@ -0,0 +1,132 @@
+package org.swdc.dependency;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.swdc.dependency.annotations.Dependency;
+import org.swdc.dependency.annotations.Factory;
+import org.swdc.dependency.parser.AnnotationDependencyParser;
+import org.swdc.dependency.registry.ComponentInfo;
+import org.swdc.dependency.registry.DefaultDependencyRegistryContext;
+import org.swdc.dependency.registry.InjectionPlan;
+import org.swdc.dependency.registry.InjectionPoint;
+
+/**
+ * 注入计划的测试类，直接通过编译后的MethodHandle创建和注入组件
+ */
+public class InjectionPlanTest {
+
+    public static class PlanDependency {
+
+    }
+
+    public static class PlanConstructor {
+
+        private PlanDependency dependency;
+
+        @Inject
+        public PlanConstructor(PlanDependency dependency) {
+            this.dependency = dependency;
+        }
+
+    }
+
+    public static class PlanTarget {
+
+        @Inject
+        private PlanDependency dependency;
+
+        private PlanConstructor constructor;
+
+        private boolean initialized;
+
+        @Inject
+        public void setConstructor(PlanConstructor constructor) {
+            this.constructor = constructor;
+        }
+
+        @PostConstruct
+        public void init() {
+            initialized = true;
+        }
+
+    }
+
+    public static class PlanProduct {
+
+        private PlanDependency dependency;
+
+        PlanProduct(PlanDependency dependency) {
+            this.dependency = dependency;
+        }
+
+    }
+
+    @Dependency
+    public static class PlanFactory {
+
+        @Factory
+        public PlanProduct product(PlanDependency dependency) {
+            return new PlanProduct(dependency);
+        }
+
+    }
+
+    private static ComponentInfo parse(Class declared, Class component) {
+        DefaultDependencyRegistryContext context = new DefaultDependencyRegistryContext();
+        AnnotationDependencyParser parser = new AnnotationDependencyParser();
+        parser.parse(declared,context);
+        ComponentInfo info = context.findByClass(component);
+        Assertions.assertNotNull(info);
+        return info;
+    }
+
+    @Test
+    public void testConstructorInjection() throws Throwable {
+        InjectionPlan plan = InjectionPlan.compile(parse(PlanConstructor.class,PlanConstructor.class));
+        Assertions.assertEquals(1,plan.getCreatorDependencies().length);
+        Assertions.assertEquals(PlanDependency.class,plan.getCreatorDependencies()[0].getClazz());
+
+        PlanDependency dependency = new PlanDependency();
+        PlanConstructor created = (PlanConstructor) plan.newInstance(null,new Object[] { dependency });
+        Assertions.assertSame(dependency,created.dependency);
+    }
+
+    @Test
+    public void testFactoryInjection() throws Throwable {
+        InjectionPlan plan = InjectionPlan.compile(parse(PlanFactory.class,PlanProduct.class));
+        Assertions.assertFalse(plan.isAsyncFactory());
+        Assertions.assertEquals(1,plan.getCreatorDependencies().length);
+
+        PlanDependency dependency = new PlanDependency();
+        PlanProduct product = (PlanProduct) plan.newInstance(new PlanFactory(),new Object[] { dependency });
+        Assertions.assertSame(dependency,product.dependency);
+    }
+
+    @Test
+    public void testFieldAndSetterInjection() throws Throwable {
+        InjectionPlan plan = InjectionPlan.compile(parse(PlanTarget.class,PlanTarget.class));
+        PlanTarget target = (PlanTarget) plan.newInstance(null,new Object[0]);
+
+        PlanDependency dependency = new PlanDependency();
+        PlanConstructor constructor = new PlanConstructor(dependency);
+        Assertions.assertEquals(2,plan.getInjectionPoints().length);
+        for (InjectionPoint point : plan.getInjectionPoints()) {
+            if (point.getType() == InjectionPoint.Type.FIELD) {
+                // 私有字段也通过MethodHandle写入
+                point.inject(target,dependency);
+            } else {
+                Assertions.assertEquals(InjectionPoint.Type.SETTER,point.getType());
+                point.inject(target,new Object[] { constructor });
+            }
+        }
+        Assertions.assertSame(dependency,target.dependency);
+        Assertions.assertSame(constructor,target.constructor);
+
+        Assertions.assertTrue(plan.hasInitMethod());
+        plan.invokeInit(target);
+        Assertions.assertTrue(target.initialized);
+    }
+
+}
@@ -0,0 +1,14 @@
+package org.swdc.dependency.testpkg;
+
+public class TestDTO {
+
+    private String value;
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+}